@@ -0,0 +1,88 @@
+#!/usr/bin/env bash
+# Drives a mixed read/write load against a running instance and prints throughput, latency
+# percentiles and status codes, overall and per endpoint. Run it once per threading mode with the
+# same settings and compare the output.
+#
+#   scripts/load-test.sh [base-url]
+#
+# DURATION (seconds, default 60), CONCURRENCY (workers, default 400), WRITE_PERCENT (default 20)
+# and SEED_PADDIES (default 50) tune the run. Needs curl, jq and awk.
+# Start the instance with the write rate limits raised, see README.MD, or most writes get a 429.
+set -euo pipefail
+
+BASE_URL=${1:-http://localhost:8080}
+DURATION=${DURATION:-60}
+CONCURRENCY=${CONCURRENCY:-400}
+WRITE_PERCENT=${WRITE_PERCENT:-20}
+SEED_PADDIES=${SEED_PADDIES:-50}
+
+results=$(mktemp -d)
+trap 'rm -rf "$results"' EXIT
+
+email="load-$(date +%s)-$$@example.com"
+TOKEN=$(curl -fsS -X POST "$BASE_URL/api/v1/auth/register" -H 'Content-Type: application/json' \
+    -d "{\"firstname\":\"Load\",\"lastname\":\"Test\",\"email\":\"$email\",\"password\":\"load-test\"}" \
+    | jq -r .token)
+
+# Enough stock that allocations keep succeeding for the whole run instead of turning into 409s
+for ((i = 0; i < SEED_PADDIES; i++)); do
+    curl -fsS -o /dev/null -X POST "$BASE_URL/api/v1/paddy" \
+        -H 'Content-Type: application/json' -H "Authorization: Bearer $TOKEN" \
+        -d "{\"quantity\":100000,\"price\":20,\"supplier\":\"Load Supplier $((i % 5))\"}"
+done
+
+request() {
+    local method=$1 path=$2 body=${3:-}
+    local args=(-s -o /dev/null -w "$method $path %{http_code} %{time_total}\n" -X "$method"
+                -H "Authorization: Bearer $TOKEN")
+    if [[ -n $body ]]; then
+        args+=(-H 'Content-Type: application/json' -d "$body")
+    fi
+    curl "${args[@]}" "$BASE_URL$path" || echo "$method $path 000 0"
+}
+
+worker() {
+    local deadline=$1
+    while ((EPOCHSECONDS < deadline)); do
+        if ((RANDOM % 100 < WRITE_PERCENT)); then
+            case $((RANDOM % 2)) in
+                0) request POST /api/v1/paddy '{"quantity":1000,"price":20,"supplier":"Load Supplier"}' ;;
+                1) request POST /api/v1/batch/allocate '{"inputQuantity":10,"producedQuantity":8}' ;;
+            esac
+        else
+            case $((RANDOM % 3)) in
+                0) request GET '/api/v1/batch?page=0&size=20' ;;
+                1) request GET '/api/v1/paddy/available?page=0&size=20' ;;
+                2) request GET '/api/v1/rice?page=0&size=20' ;;
+            esac
+        fi
+    done
+}
+
+echo "Running $CONCURRENCY workers for ${DURATION}s against $BASE_URL, $WRITE_PERCENT% writes"
+deadline=$((EPOCHSECONDS + DURATION))
+for ((i = 0; i < CONCURRENCY; i++)); do
+    worker "$deadline" > "$results/$i.log" &
+done
+wait
+
+cat "$results"/*.log > "$results/all"
+
+summarize() {
+    sort -k4 -n | awk -v duration="$DURATION" -v label="$1" '
+        { times[NR] = $4; codes[$3]++ }
+        END {
+            if (NR == 0) { printf "%-45s no requests\n", label; exit }
+            statuses = ""
+            for (code in codes) statuses = statuses " " code "=" codes[code]
+            printf "%-45s %8d req %8.1f req/s  p50 %6.0f ms  p99 %6.0f ms  max %6.0f ms %s\n",
+                label, NR, NR / duration,
+                times[int((NR - 1) * 0.50) + 1] * 1000, times[int((NR - 1) * 0.99) + 1] * 1000,
+                times[NR] * 1000, statuses
+        }'
+}
+
+summarize "all" < "$results/all"
+cut -d' ' -f1,2 "$results/all" | sort -u | while read -r method path; do
+    awk -v m="$method" -v p="$path" '$1 == m && $2 == p' "$results/all" | summarize "$method $path"
+done
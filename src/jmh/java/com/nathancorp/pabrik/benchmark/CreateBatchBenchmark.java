@@ -0,0 +1,131 @@
+package com.nathancorp.pabrik.benchmark;
+
+import com.nathancorp.pabrik.dto.response.BatchResponse;
+import com.nathancorp.pabrik.dto.response.PaddyPriceResponse;
+import com.nathancorp.pabrik.dto.response.PaddyResponse;
+import com.nathancorp.pabrik.dto.response.RiceResponse;
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.Storage;
+import com.nathancorp.pabrik.repository.BatchPaddyRepository;
+import com.nathancorp.pabrik.repository.BatchRepository;
+import com.nathancorp.pabrik.repository.ChangeStampRepository;
+import com.nathancorp.pabrik.repository.InventorySummaryRepository;
+import com.nathancorp.pabrik.repository.PaddyRepository;
+import com.nathancorp.pabrik.repository.RiceRepository;
+import com.nathancorp.pabrik.repository.YieldRollupRepository;
+import com.nathancorp.pabrik.service.AvailablePaddyIndex;
+import com.nathancorp.pabrik.service.BatchService;
+import com.nathancorp.pabrik.service.ChangeStampService;
+import com.nathancorp.pabrik.service.CostingService;
+import com.nathancorp.pabrik.service.DetailCache;
+import com.nathancorp.pabrik.service.InventoryService;
+import com.nathancorp.pabrik.service.OptimisticLockRetry;
+import com.nathancorp.pabrik.service.PaddyService;
+import com.nathancorp.pabrik.service.RiceService;
+import com.nathancorp.pabrik.service.YieldService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * {@link BatchService#createBatch(Map, Double)} wired with the real services over
+ * {@link InMemoryRepositories}, measuring validation, orchestration, entity building and costing
+ * without a database. {@link CreateBatchH2Benchmark} measures the same call against H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CreateBatchBenchmark {
+
+    @Param({"1", "10"})
+    private int paddiesPerBatch;
+
+    private BatchService batchService;
+
+    private Map<String, Double> paddyAndQuantity;
+
+    @Setup
+    public void setUp() {
+        Map<UUID, Paddy> paddies = new LinkedHashMap<>();
+        for (int i = 0; i < paddiesPerBatch; i++) {
+            // never runs out, the fake guarded update does not consume
+            Paddy paddy = Paddy.builder().id(UUID.randomUUID()).quantity(1e12).price(20.0).supplier("Supplier " + i)
+                    .storage(Storage.STORAGE_1).purchaseDate(LocalDateTime.now()).processedQuantity(0.0)
+                    .remainingQuantity(1e12).version(0L).build();
+            paddies.put(paddy.getId(), paddy);
+        }
+        paddyAndQuantity = paddies.keySet().stream().collect(Collectors.toMap(UUID::toString, id -> 10.0));
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransactionOperations withoutTransaction = TransactionOperations.withoutTransaction();
+        PaddyRepository paddyRepository = InMemoryRepositories.fake(PaddyRepository.class, Map.of(
+                "findAllById", args -> ids(args).stream().map(paddies::get).toList(),
+                "incrementProcessedQuantities", args -> {
+                    int[] updatedRows = new int[((Map<?, ?>) args[0]).size()];
+                    Arrays.fill(updatedRows, 1);
+                    return updatedRows;
+                },
+                "findPricesByIdIn", args -> ids(args).stream()
+                        .map(id -> new PaddyPriceResponse(id, paddies.get(id).getPrice()))
+                        .toList()));
+        BatchRepository batchRepository = InMemoryRepositories.fake(BatchRepository.class, Map.of());
+        BatchPaddyRepository batchPaddyRepository = InMemoryRepositories.fake(BatchPaddyRepository.class, Map.of());
+        RiceRepository riceRepository = InMemoryRepositories.fake(RiceRepository.class, Map.of());
+
+        InventoryService inventoryService = new InventoryService(
+                InMemoryRepositories.fake(InventorySummaryRepository.class, Map.of()), withoutTransaction);
+        ChangeStampService changeStampService = new ChangeStampService(
+                InMemoryRepositories.fake(ChangeStampRepository.class, Map.of()), withoutTransaction);
+        // no database, the fake rollup rows always exist so none is ever inserted
+        YieldService yieldService = new YieldService(
+                InMemoryRepositories.fake(YieldRollupRepository.class, Map.of()), withoutTransaction, 366);
+        DetailCache<BatchResponse> batchCache = new DetailCache<>(meterRegistry, "batchDetails", 10000, Duration.ofSeconds(30));
+        DetailCache<RiceResponse> riceCache = new DetailCache<>(meterRegistry, "riceDetails", 10000, Duration.ofSeconds(30));
+        DetailCache<PaddyResponse> paddyCache = new DetailCache<>(meterRegistry, "paddyDetails", 10000, Duration.ofSeconds(30));
+        CostingService costingService = new CostingService(batchRepository, batchPaddyRepository, riceRepository,
+                batchCache, riceCache, changeStampService, withoutTransaction, 366);
+        OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(withoutTransaction, 3, Duration.ZERO, Duration.ZERO);
+        AvailablePaddyIndex availablePaddyIndex = new AvailablePaddyIndex(paddyRepository, null, Duration.ofMinutes(5));
+        PaddyService paddyService = new PaddyService(paddyRepository, inventoryService, paddyCache, changeStampService,
+                costingService, optimisticLockRetry, availablePaddyIndex);
+        RiceService riceService = new RiceService(riceRepository, inventoryService, riceCache, changeStampService);
+        batchService = new BatchService(batchRepository, batchPaddyRepository, paddyService, riceService,
+                optimisticLockRetry, inventoryService, batchCache, changeStampService, yieldService, costingService,
+                availablePaddyIndex);
+    }
+
+    @Benchmark
+    public Batch createBatch() {
+        return batchService.createBatch(paddyAndQuantity, 8.0 * paddiesPerBatch);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<UUID> ids(Object[] args) {
+        return (Collection<UUID>) args[0];
+    }
+}
@@ -0,0 +1,76 @@
+package com.nathancorp.pabrik.benchmark;
+
+import com.nathancorp.pabrik.PabrikApplication;
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.service.BatchService;
+import com.nathancorp.pabrik.service.PaddyService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BatchService#createBatch(Map, Double)} in the running application against an in-memory H2
+ * database, so the JPA, JDBC batching and transaction costs that {@link CreateBatchBenchmark} leaves
+ * out are included. Every batch takes a little of the same paddies, which never run out.
+ * Hibernate and Spring Data need many more calls than the other benchmarks to be fully compiled,
+ * hence the long warmup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 10, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class CreateBatchH2Benchmark {
+
+    @Param({"1", "10"})
+    private int paddiesPerBatch;
+
+    private ConfigurableApplicationContext context;
+
+    private BatchService batchService;
+
+    private Map<String, Double> paddyAndQuantity;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(PabrikApplication.class).run(
+                "--spring.profiles.active=h2",
+                "--spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--PABRIK_SECRET_KEY=" + JwtServiceBenchmark.SECRET_KEY,
+                "--server.port=0",
+                "--logging.level.root=WARN");
+        batchService = context.getBean(BatchService.class);
+        PaddyService paddyService = context.getBean(PaddyService.class);
+        paddyAndQuantity = new HashMap<>();
+        for (int i = 0; i < paddiesPerBatch; i++) {
+            paddyAndQuantity.put(paddyService.createPaddy(1e12, 20.0, "Supplier " + i).getId().toString(), 10.0);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Batch createBatch() {
+        return batchService.createBatch(paddyAndQuantity, 8.0 * paddiesPerBatch);
+    }
+}
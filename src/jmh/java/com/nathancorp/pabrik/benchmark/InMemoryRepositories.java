@@ -0,0 +1,77 @@
+package com.nathancorp.pabrik.benchmark;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Repository fakes answering from memory, so a benchmark measures the service code and not the database.
+ * Saved entities get a random id and are not kept, the rows touched by guarded updates are reported as
+ * updated, and anything else answers with an empty or zero result unless the benchmark overrides it.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    /**
+     * @param repository repository interface to fake
+     * @param overrides  answers by method name, given the call arguments
+     */
+    static <T> T fake(Class<T> repository, Map<String, Function<Object[], Object>> overrides) {
+        return repository.cast(Proxy.newProxyInstance(repository.getClassLoader(), new Class<?>[]{repository},
+                (proxy, method, args) -> {
+                    Function<Object[], Object> override = overrides.get(method.getName());
+                    if (override != null) {
+                        return override.apply(args);
+                    }
+                    return switch (method.getName()) {
+                        case "save", "saveAndFlush" -> withId(args[0]);
+                        case "saveAll" -> ((Collection<?>) args[0]).stream().map(InMemoryRepositories::withId).toList();
+                        case "equals" -> proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "toString" -> "InMemory" + repository.getSimpleName();
+                        default -> emptyResult(method);
+                    };
+                }));
+    }
+
+    // like the UUIDv7 generator on insert
+    private static Object withId(Object entity) {
+        try {
+            Method getId = entity.getClass().getMethod("getId");
+            if (getId.invoke(entity) == null) {
+                entity.getClass().getMethod("setId", UUID.class).invoke(entity, UUID.randomUUID());
+            }
+            return entity;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to set id of " + entity.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static Object emptyResult(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == int.class) {
+            // guarded updates and stamp bumps touched their row
+            return 1;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        if (type == List.class || type == Collection.class || type == Iterable.class) {
+            return List.of();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,83 @@
+package com.nathancorp.pabrik.benchmark;
+
+import com.nathancorp.pabrik.config.JwtAuthenticationFilter;
+import com.nathancorp.pabrik.model.Role;
+import com.nathancorp.pabrik.model.User;
+import com.nathancorp.pabrik.service.JwtService;
+import com.nathancorp.pabrik.service.UserPrincipalCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticating one request through {@link JwtAuthenticationFilter}, from the Authorization header
+ * to the authentication in the security context. The principal is rebuilt from the token claims in
+ * stateless mode, otherwise loaded through the user principal cache as the application does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"false", "true"})
+    private boolean statelessAuthorization;
+
+    private JwtAuthenticationFilter filter;
+
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        JwtService jwtService = new JwtService(JwtServiceBenchmark.SECRET_KEY, 10000, statelessAuthorization);
+        User user = new User(UUID.randomUUID(), "Bench", "Mark", "bench@email.com", "password", Role.USER);
+        Map<String, User> users = Map.of(user.getEmail(), user);
+        UserPrincipalCache userPrincipalCache = new UserPrincipalCache(new SimpleMeterRegistry(), 10000, Duration.ofMinutes(5));
+        UserDetailsService userDetailsService = username -> userPrincipalCache.get(username, email -> {
+            User found = users.get(email);
+            if (found == null) {
+                throw new UsernameNotFoundException(String.format("User: %s is not found", email));
+            }
+            return found;
+        });
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService);
+        authorization = "Bearer " + jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public Authentication authenticate() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/paddy");
+        request.addHeader("Authorization", authorization);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
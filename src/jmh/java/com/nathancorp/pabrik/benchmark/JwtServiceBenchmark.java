@@ -0,0 +1,64 @@
+package com.nathancorp.pabrik.benchmark;
+
+import com.nathancorp.pabrik.model.Role;
+import com.nathancorp.pabrik.model.User;
+import com.nathancorp.pabrik.service.JwtClaims;
+import com.nathancorp.pabrik.service.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation and verification of {@link JwtService}. A verified-token cache size of 0 evicts
+ * right away, so verifications keep checking the signature; otherwise they are answered from the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtServiceBenchmark {
+
+    static final String SECRET_KEY = "RWl2V2iChIEyicARsgOAnIJ2R/nYqFTqaZS21BZ3Wns=";
+
+    @Param({"0", "10000"})
+    private long verifiedTokenCacheSize;
+
+    @Param({"false", "true"})
+    private boolean statelessAuthorization;
+
+    private JwtService jwtService;
+
+    private User user;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET_KEY, verifiedTokenCacheSize, statelessAuthorization);
+        user = new User(UUID.randomUUID(), "Bench", "Mark", "bench@email.com", "password", Role.USER);
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public JwtClaims verifyToken() {
+        return jwtService.verifyToken(token);
+    }
+}
@@ -1,14 +1,20 @@
 package com.nathancorp.pabrik.config;
 
 
+import com.nathancorp.pabrik.model.User;
 import com.nathancorp.pabrik.repository.UserRepository;
+import com.nathancorp.pabrik.service.UserPrincipalCache;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -18,12 +24,36 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 @RequiredArgsConstructor
 public class ApplicationConfiguration {
 
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationConfiguration.class);
+
     private final UserRepository repository;
 
+    private final UserPrincipalCache userPrincipalCache;
+
+    @Value("${pabrik.security.bcrypt-strength:10}")
+    private int bcryptStrength;
+
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> repository.findByEmail(username)
-                .orElseThrow(() -> new UsernameNotFoundException(String.format("User: %s is not found", username)));
+        return username -> userPrincipalCache.get(username, email -> repository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException(String.format("User: %s is not found", email))));
+    }
+
+    /**
+     * Called by the {@link DaoAuthenticationProvider} after a successful login when the stored hash
+     * was created with a lower BCrypt strength than configured, so hashes are upgraded transparently.
+     */
+    @Bean
+    public UserDetailsPasswordService userDetailsPasswordService() {
+        return (userDetails, newPassword) -> {
+            User user = repository.findByEmail(userDetails.getUsername())
+                    .orElseThrow(() -> new UsernameNotFoundException(String.format("User: %s is not found", userDetails.getUsername())));
+            user.setPassword(newPassword);
+            user = repository.save(user);
+            userPrincipalCache.invalidate(user.getEmail());
+            logger.info("Password hash of user {} is upgraded to BCrypt strength {}", user.getId(), bcryptStrength);
+            return user;
+        };
     }
 
     @Bean
@@ -31,6 +61,7 @@ public class ApplicationConfiguration {
         DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
         authenticationProvider.setUserDetailsService(userDetailsService());
         authenticationProvider.setPasswordEncoder(passwordEncoder());
+        authenticationProvider.setUserDetailsPasswordService(userDetailsPasswordService());
         return authenticationProvider;
     }
 
@@ -41,7 +72,7 @@ public class ApplicationConfiguration {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 }
 
@@ -0,0 +1,56 @@
+package com.nathancorp.pabrik.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Puts a {@link BulkheadDataSource} in front of the Hikari pool when pabrik.db-bulkhead.enabled is set,
+ * as it is by the virtual-threads profile. The cap defaults to the pool's maximum size.
+ */
+@Configuration
+@ConditionalOnProperty(name = "pabrik.db-bulkhead.enabled", havingValue = "true")
+public class DatabaseBulkheadConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseBulkheadConfiguration.class);
+
+    private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+
+    // static, so wrapping the data source does not pull this configuration in early
+    @Bean
+    public static BeanPostProcessor databaseBulkheadPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${pabrik.db-bulkhead.max-concurrent:0}") int maxConcurrent,
+            @Value("${pabrik.db-bulkhead.acquire-timeout:30s}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari)) {
+                    return bean;
+                }
+                // an unset pool size is only defaulted once the pool starts
+                int poolSize = hikari.getMaximumPoolSize() > 0 ? hikari.getMaximumPoolSize() : HIKARI_DEFAULT_POOL_SIZE;
+                int permits = maxConcurrent > 0 ? maxConcurrent : poolSize;
+                BulkheadDataSource bulkhead = new BulkheadDataSource(hikari, permits, acquireTimeout);
+                meterRegistry.ifAvailable(registry -> {
+                    Gauge.builder("pabrik.db.bulkhead.available", bulkhead, BulkheadDataSource::getAvailablePermits)
+                            .register(registry);
+                    Gauge.builder("pabrik.db.bulkhead.waiting", bulkhead, BulkheadDataSource::getWaiting)
+                            .register(registry);
+                });
+                logger.info("Database bulkhead is enabled on {}, {} concurrent connections", beanName, permits);
+                return bulkhead;
+            }
+        };
+    }
+}
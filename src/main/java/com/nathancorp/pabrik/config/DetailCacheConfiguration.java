@@ -0,0 +1,40 @@
+package com.nathancorp.pabrik.config;
+
+import com.nathancorp.pabrik.dto.response.BatchResponse;
+import com.nathancorp.pabrik.dto.response.PaddyResponse;
+import com.nathancorp.pabrik.dto.response.RiceResponse;
+import com.nathancorp.pabrik.service.DetailCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Caches behind the paddy, batch and rice detail endpoints, sized per entity
+ */
+@Configuration
+public class DetailCacheConfiguration {
+
+    @Bean
+    public DetailCache<PaddyResponse> paddyDetailCache(MeterRegistry meterRegistry,
+                                                       @Value("${pabrik.detail-cache.paddy.max-size:10000}") long maxSize,
+                                                       @Value("${pabrik.detail-cache.paddy.ttl:30s}") Duration ttl) {
+        return new DetailCache<>(meterRegistry, "paddyDetails", maxSize, ttl);
+    }
+
+    @Bean
+    public DetailCache<BatchResponse> batchDetailCache(MeterRegistry meterRegistry,
+                                                       @Value("${pabrik.detail-cache.batch.max-size:10000}") long maxSize,
+                                                       @Value("${pabrik.detail-cache.batch.ttl:30s}") Duration ttl) {
+        return new DetailCache<>(meterRegistry, "batchDetails", maxSize, ttl);
+    }
+
+    @Bean
+    public DetailCache<RiceResponse> riceDetailCache(MeterRegistry meterRegistry,
+                                                     @Value("${pabrik.detail-cache.rice.max-size:10000}") long maxSize,
+                                                     @Value("${pabrik.detail-cache.rice.ttl:30s}") Duration ttl) {
+        return new DetailCache<>(meterRegistry, "riceDetails", maxSize, ttl);
+    }
+}
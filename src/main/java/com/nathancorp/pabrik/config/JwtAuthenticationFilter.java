@@ -1,5 +1,7 @@
 package com.nathancorp.pabrik.config;
 
+import com.nathancorp.pabrik.model.User;
+import com.nathancorp.pabrik.service.JwtClaims;
 import com.nathancorp.pabrik.service.JwtService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -33,6 +35,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
+        final JwtClaims claims;
         final String userEmail;
         if (authHeader == null || !authHeader.startsWith("Bearer")) {
             filterChain.doFilter(request, response);
@@ -40,13 +43,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(BEARER_TOKEN_START_INDEX);
-        userEmail = jwtService.extractUsername(jwt);
+        // verify the signature once, everything below works on the verified claims
+        claims = jwtService.verifyToken(jwt);
+        userEmail = claims.getSubject();
 
         // check if the user exists and is not authenticated
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            UserDetails userDetails = loadPrincipal(claims);
             // check if token is valid
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (jwtService.isTokenValid(claims, userDetails)) {
                 // create authToken
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
@@ -60,4 +65,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * In stateless authorization mode the principal is rebuilt from the verified claims,
+     * otherwise it is loaded through the {@link UserDetailsService}.
+     */
+    private UserDetails loadPrincipal(JwtClaims claims) {
+        if (jwtService.isStatelessAuthorization() && claims.hasPrincipalClaims()) {
+            return User.builder()
+                    .id(claims.getUserId())
+                    .email(claims.getSubject())
+                    .role(claims.getRole())
+                    .build();
+        }
+        return this.userDetailsService.loadUserByUsername(claims.getSubject());
+    }
 }
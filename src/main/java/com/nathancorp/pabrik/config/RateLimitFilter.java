@@ -0,0 +1,67 @@
+package com.nathancorp.pabrik.config;
+
+import com.nathancorp.pabrik.service.WriteRateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Admission control for the write endpoints, runs after {@link JwtAuthenticationFilter} so the bucket
+ * is the authenticated principal's. A request over the limit is answered with 429 and a Retry-After
+ * in seconds before it reaches a controller or the connection pool. Unauthenticated requests pass
+ * through untouched, the authorization filter rejects them.
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private final WriteRateLimiter writeRateLimiter;
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // decoded as handler mapping sees it, so /api/v1/%62atch is limited like /api/v1/batch
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        Optional<Duration> retryAfter = writeRateLimiter.tryAcquire(authentication.getName(), request.getMethod(), path);
+        if (retryAfter.isPresent()) {
+            // whole seconds, rounded up so a retry right on time is admitted
+            long seconds = Math.max(1, (retryAfter.get().toMillis() + 999) / 1000);
+            // counted by pabrik.rate-limit.rejected, a client hammering the limit must not flood the error log
+            logger.debug("Rejected {} {} of {}, rate limit exceeded, retry after {}s",
+                    request.getMethod(), path, authentication.getName(), seconds);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests, please retry later");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -4,6 +4,7 @@ import com.nathancorp.pabrik.dto.request.AuthenticationRequest;
 import com.nathancorp.pabrik.dto.request.RegisterRequest;
 import com.nathancorp.pabrik.dto.response.AuthenticationResponse;
 import com.nathancorp.pabrik.service.AuthenticationService;
+import com.nathancorp.pabrik.service.LoginExecutor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -11,6 +12,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/v1/auth")
 @RequiredArgsConstructor
@@ -18,17 +21,22 @@ public class AuthController {
 
     private final AuthenticationService authenticationService;
 
+    private final LoginExecutor loginExecutor;
+
+    // BCrypt work runs on the login executor, the request thread is released while it is hashing
     @PostMapping("/register")
-    public ResponseEntity<AuthenticationResponse> register (
+    public CompletableFuture<ResponseEntity<AuthenticationResponse>> register (
             @RequestBody RegisterRequest request
     ) {
-        return ResponseEntity.ok(authenticationService.register(request));
+        return loginExecutor.submit("register", () -> authenticationService.register(request))
+                .thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/authenticate")
-    public ResponseEntity<AuthenticationResponse> authenticate (
+    public CompletableFuture<ResponseEntity<AuthenticationResponse>> authenticate (
             @RequestBody AuthenticationRequest request
     ) {
-        return ResponseEntity.ok(authenticationService.authenticate(request));
+        return loginExecutor.submit("authenticate", () -> authenticationService.authenticate(request))
+                .thenApply(ResponseEntity::ok);
     }
 }
@@ -1,17 +1,33 @@
 package com.nathancorp.pabrik.controller;
 
+import com.nathancorp.pabrik.dto.request.AllocateBatchRequest;
+import com.nathancorp.pabrik.dto.request.BatchSearchRequest;
+import com.nathancorp.pabrik.dto.request.BulkCreateBatchRequest;
 import com.nathancorp.pabrik.dto.request.CreateBatchRequest;
+import com.nathancorp.pabrik.dto.request.ExportFormat;
 import com.nathancorp.pabrik.dto.request.UpdateBatchRequest;
-import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.dto.response.BatchPaddyResponse;
+import com.nathancorp.pabrik.dto.response.BatchResponse;
+import com.nathancorp.pabrik.dto.response.BulkCreateBatchResponse;
+import com.nathancorp.pabrik.dto.response.CursorPage;
+import com.nathancorp.pabrik.model.StampedTable;
 import com.nathancorp.pabrik.service.BatchService;
+import com.nathancorp.pabrik.service.ChangeStampService;
+import com.nathancorp.pabrik.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -21,25 +37,92 @@ public class BatchController {
 
     private final BatchService batchService;
 
+    private final ExportService exportService;
+
+    private final ChangeStampService changeStampService;
+
     @GetMapping
-    public Page<Batch> getBatches(@RequestParam int page, @RequestParam int size) {
+    public Page<BatchResponse> getBatches(@RequestParam int page, @RequestParam int size, WebRequest request) {
+        if (request.checkNotModified(changeStampService.getListETag(StampedTable.BATCH))) {
+            return null;
+        }
         Pageable pageable = PageRequest.of(page, size);
         return batchService.getAllBatch(pageable);
     }
 
+    @GetMapping("/cursor")
+    public CursorPage<BatchResponse> getBatchesAfter(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "20") int size,
+                                                     WebRequest request) {
+        if (request.checkNotModified(changeStampService.getListETag(StampedTable.BATCH))) {
+            return null;
+        }
+        return batchService.getBatchesAfter(cursor, size);
+    }
+
+    @GetMapping("/search")
+    public Page<BatchResponse> searchBatches(@ModelAttribute BatchSearchRequest filter,
+                                             @RequestParam int page, @RequestParam int size,
+                                             WebRequest request) {
+        if (request.checkNotModified(changeStampService.getListETag(StampedTable.BATCH))) {
+            return null;
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "processingDate", "id"));
+        return batchService.searchBatches(filter, pageable);
+    }
+
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportBatches(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            HttpServletResponse response) {
+        return Exports.attachment(exportService, response, "batches", format,
+                output -> exportService.exportBatches(from, to, format, output));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Batch> getBatchById(@PathVariable String id) {
-        return ResponseEntity.ok(batchService.getBatchById(id));
+    public ResponseEntity<BatchResponse> getBatchById(@PathVariable String id, WebRequest request) {
+        return ETags.detail(request, () -> batchService.getBatchVersion(id),
+                () -> batchService.getBatchById(id), BatchResponse::getVersion);
+    }
+
+    @GetMapping("/paddy/{paddyId}")
+    public ResponseEntity<List<BatchPaddyResponse>> getAllocationsByPaddyId(@PathVariable String paddyId,
+                                                                            WebRequest request) {
+        // allocations are only written with their batch
+        if (request.checkNotModified(changeStampService.getListETag(StampedTable.BATCH))) {
+            return null;
+        }
+        return ResponseEntity.ok(batchService.getAllocationsByPaddyId(paddyId));
     }
 
     @PostMapping
-    public ResponseEntity<Batch> createBatch(@RequestBody CreateBatchRequest batchRequest) {
-        return ResponseEntity.ok(batchService.createBatch(batchRequest.getPaddyAndQuantity(), batchRequest.getProducedQuantity()));
+    public ResponseEntity<BatchResponse> createBatch(@RequestBody CreateBatchRequest batchRequest) {
+        return ResponseEntity.ok(BatchResponse.from(
+                batchService.createBatch(batchRequest.getPaddyAndQuantity(), batchRequest.getProducedQuantity())));
+    }
+
+    @PostMapping("/allocate")
+    public ResponseEntity<BatchResponse> createBatchFromOldestPaddies(@RequestBody AllocateBatchRequest allocateRequest) {
+        return ResponseEntity.ok(BatchResponse.from(batchService.createBatchFromOldestPaddies(
+                allocateRequest.getInputQuantity(), allocateRequest.getProducedQuantity(),
+                allocateRequest.getSupplier(), allocateRequest.getStorage())));
+    }
+
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkCreateBatchResponse> createBatches(@RequestBody BulkCreateBatchRequest bulkRequest) {
+        BulkCreateBatchResponse response = batchService.createBatches(bulkRequest.getBatches(), bulkRequest.getMode());
+        if (response.getCreated() == 0 && response.getRejected() > 0) {
+            return ResponseEntity.unprocessableEntity().body(response);
+        }
+        return ResponseEntity.ok(response);
     }
 
     @PatchMapping("/status/{id}")
-    public ResponseEntity<Batch> patchBatchStatusById(@PathVariable String id, @RequestBody UpdateBatchRequest batchRequest) {
-        return ResponseEntity.ok(batchService.updateBatchStatus(id, batchRequest.isProcessed(), batchRequest.getProducedQuantity()));
+    public ResponseEntity<BatchResponse> patchBatchStatusById(@PathVariable String id, @RequestBody UpdateBatchRequest batchRequest) {
+        return ResponseEntity.ok(BatchResponse.from(batchService.updateBatchStatus(id, batchRequest.isProcessed(),
+                batchRequest.getProducedQuantity(), batchRequest.getVersion())));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.nathancorp.pabrik.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Conditional GET helpers. Detail endpoints use strong ETags from the version column, list endpoints
+ * weak ETags from the table change stamp, see {@link com.nathancorp.pabrik.service.ChangeStampService}.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String strong(Long version) {
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * Answers If-None-Match with a version lookup, so an unchanged entity is neither loaded nor serialized
+     *
+     * @param request   current request
+     * @param version   reads only the version, called when the request has If-None-Match
+     * @param detail    loads the entity DTO
+     * @param versionOf version of the loaded DTO
+     * @return 304 if the client has the current version, the DTO with its ETag otherwise
+     */
+    static <T> ResponseEntity<T> detail(WebRequest request, Supplier<Long> version,
+                                        Supplier<T> detail, Function<T, Long> versionOf) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null && request.checkNotModified(strong(version.get()))) {
+            return null;
+        }
+        T body = detail.get();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        String eTag = strong(versionOf.apply(body));
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        return response.body(body);
+    }
+}
@@ -0,0 +1,40 @@
+package com.nathancorp.pabrik.controller;
+
+import com.nathancorp.pabrik.dto.request.ExportFormat;
+import com.nathancorp.pabrik.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Download responses of the export endpoints. The body is written on an async thread while it is
+ * sent, with the export timeout instead of the default async request timeout, and holds an export
+ * slot until it is done.
+ */
+final class Exports {
+
+    private Exports() {
+    }
+
+    static WebAsyncTask<Void> attachment(ExportService exportService, HttpServletResponse response,
+                                         String name, ExportFormat format, StreamingResponseBody body) {
+        ExportService.Slot slot = exportService.acquireSlot();
+        boolean csv = format == ExportFormat.CSV;
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(name + (csv ? ".csv" : ".ndjson"))
+                .build()
+                .toString());
+        WebAsyncTask<Void> task = new WebAsyncTask<>(exportService.getTimeout().toMillis(), () -> {
+            try (slot) {
+                body.writeTo(response.getOutputStream());
+            }
+            return null;
+        });
+        // a task cancelled before it ran gives its slot back too
+        task.onCompletion(slot::close);
+        return task;
+    }
+}
@@ -0,0 +1,30 @@
+package com.nathancorp.pabrik.controller;
+
+import com.nathancorp.pabrik.dto.response.InventorySummaryResponse;
+import com.nathancorp.pabrik.service.InventoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/inventory")
+@RequiredArgsConstructor
+public class InventoryController {
+
+    private final InventoryService inventoryService;
+
+    @GetMapping("/summary")
+    public ResponseEntity<List<InventorySummaryResponse>> getSummary() {
+        return ResponseEntity.ok(inventoryService.getSummary());
+    }
+
+    @Secured("ADMIN")
+    @PostMapping("/summary/rebuild")
+    public ResponseEntity<List<InventorySummaryResponse>> rebuildSummary() {
+        return ResponseEntity.ok(inventoryService.rebuild());
+    }
+
+}
@@ -1,15 +1,32 @@
 package com.nathancorp.pabrik.controller;
 
 import com.nathancorp.pabrik.dto.request.CreatePaddyRequest;
-import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.dto.request.ExportFormat;
+import com.nathancorp.pabrik.dto.request.PaddyImportFormat;
+import com.nathancorp.pabrik.dto.request.PaddySearchRequest;
+import com.nathancorp.pabrik.dto.request.UpdatePaddyPriceRequest;
+import com.nathancorp.pabrik.dto.response.CursorPage;
+import com.nathancorp.pabrik.dto.response.PaddyImportResponse;
+import com.nathancorp.pabrik.dto.response.PaddyResponse;
+import com.nathancorp.pabrik.model.StampedTable;
+import com.nathancorp.pabrik.service.ChangeStampService;
+import com.nathancorp.pabrik.service.ExportService;
+import com.nathancorp.pabrik.service.PaddyImportService;
 import com.nathancorp.pabrik.service.PaddyService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @RestController
@@ -19,26 +36,88 @@ public class PaddyController {
 
     private final PaddyService paddyService;
 
+    private final PaddyImportService paddyImportService;
+
+    private final ExportService exportService;
+
+    private final ChangeStampService changeStampService;
+
     @GetMapping
-    public Page<Paddy> getPaddies(@RequestParam int page, @RequestParam int size) {
+    public Page<PaddyResponse> getPaddies(@RequestParam int page, @RequestParam int size, WebRequest request) {
+        if (request.checkNotModified(changeStampService.getListETag(StampedTable.PADDY))) {
+            return null;
+        }
         Pageable pageable = PageRequest.of(page, size);
-        return paddyService.getAllPaddies(pageable);
+        return paddyService.getAllPaddies(pageable).map(PaddyResponse::from);
+    }
+
+    @GetMapping("/cursor")
+    public CursorPage<PaddyResponse> getPaddiesAfter(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "20") int size,
+                                                     WebRequest request) {
+        if (request.checkNotModified(changeStampService.getListETag(StampedTable.PADDY))) {
+            return null;
+        }
+        return paddyService.getPaddiesAfter(cursor, size);
+    }
+
+    @GetMapping("/search")
+    public Page<PaddyResponse> searchPaddies(@ModelAttribute PaddySearchRequest filter,
+                                             @RequestParam int page, @RequestParam int size,
+                                             WebRequest request) {
+        if (request.checkNotModified(changeStampService.getListETag(StampedTable.PADDY))) {
+            return null;
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "purchaseDate", "id"));
+        return paddyService.searchPaddies(filter, pageable).map(PaddyResponse::from);
+    }
+
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportPaddies(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            HttpServletResponse response) {
+        return Exports.attachment(exportService, response, "paddies", format,
+                output -> exportService.exportPaddies(from, to, format, output));
     }
 
     @GetMapping("/available")
-    public Page<Paddy> getAvailablePaddies(@RequestParam int page, @RequestParam int size) {
+    public Page<PaddyResponse> getAvailablePaddies(@RequestParam int page, @RequestParam int size, WebRequest request) {
+        if (request.checkNotModified(changeStampService.getListETag(StampedTable.PADDY))) {
+            return null;
+        }
         Pageable pageable = PageRequest.of(page, size);
-        return paddyService.getAllAvailablePaddies(pageable);
+        return paddyService.getAllAvailablePaddies(pageable).map(PaddyResponse::from);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Paddy> getPaddyById(@PathVariable String id) {
-        return ResponseEntity.ok(paddyService.getPaddyById(id));
+    public ResponseEntity<PaddyResponse> getPaddyById(@PathVariable String id, WebRequest request) {
+        return ETags.detail(request, () -> paddyService.getPaddyVersion(id),
+                () -> paddyService.getPaddyById(id), PaddyResponse::getVersion);
     }
 
     @PostMapping
-    public ResponseEntity<Paddy> createPaddy(@RequestBody CreatePaddyRequest paddy) {
-        return ResponseEntity.ok(paddyService.createPaddy(paddy.getQuantity(), paddy.getPrice(), paddy.getSupplier()));
+    public ResponseEntity<PaddyResponse> createPaddy(@RequestBody CreatePaddyRequest paddy) {
+        return ResponseEntity.ok(PaddyResponse.from(
+                paddyService.createPaddy(paddy.getQuantity(), paddy.getPrice(), paddy.getSupplier())));
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<PaddyImportResponse> importPaddiesCsv(InputStream body) {
+        return ResponseEntity.ok(paddyImportService.importPaddies(body, PaddyImportFormat.CSV));
+    }
+
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<PaddyImportResponse> importPaddiesNdjson(InputStream body) {
+        return ResponseEntity.ok(paddyImportService.importPaddies(body, PaddyImportFormat.NDJSON));
+    }
+
+    @PatchMapping("/price/{id}")
+    public ResponseEntity<PaddyResponse> patchPaddyPriceById(@PathVariable String id,
+                                                             @RequestBody UpdatePaddyPriceRequest priceRequest) {
+        return ResponseEntity.ok(PaddyResponse.from(
+                paddyService.updatePaddyPrice(id, priceRequest.getPrice(), priceRequest.getVersion())));
     }
 
     @DeleteMapping("/{id}")
@@ -0,0 +1,46 @@
+package com.nathancorp.pabrik.controller;
+
+import com.nathancorp.pabrik.dto.response.BatchCostResponse;
+import com.nathancorp.pabrik.dto.response.YieldReportResponse;
+import com.nathancorp.pabrik.service.CostingService;
+import com.nathancorp.pabrik.service.YieldService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/reports")
+@RequiredArgsConstructor
+public class ReportController {
+
+    private final YieldService yieldService;
+
+    private final CostingService costingService;
+
+    @GetMapping("/yield")
+    public ResponseEntity<List<YieldReportResponse>> getYieldReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String supplier) {
+        return ResponseEntity.ok(yieldService.getYieldReport(from, to, supplier));
+    }
+
+    @GetMapping("/cost")
+    public ResponseEntity<List<BatchCostResponse>> getCostReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(costingService.getCostReport(from, to));
+    }
+
+    @Secured("ADMIN")
+    @PostMapping("/yield/rebuild")
+    public ResponseEntity<Integer> rebuildYield() {
+        return ResponseEntity.ok(yieldService.rebuild());
+    }
+
+}
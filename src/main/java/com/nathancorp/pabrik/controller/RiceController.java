@@ -2,19 +2,31 @@ package com.nathancorp.pabrik.controller;
 
 import com.nathancorp.pabrik.dto.request.CreateBatchRequest;
 import com.nathancorp.pabrik.dto.request.CreateRiceRequest;
+import com.nathancorp.pabrik.dto.request.ExportFormat;
+import com.nathancorp.pabrik.dto.request.RiceSearchRequest;
 import com.nathancorp.pabrik.dto.request.UpdateBatchRequest;
+import com.nathancorp.pabrik.dto.response.CursorPage;
+import com.nathancorp.pabrik.dto.response.RiceResponse;
 import com.nathancorp.pabrik.model.Batch;
-import com.nathancorp.pabrik.model.Rice;
+import com.nathancorp.pabrik.model.StampedTable;
 import com.nathancorp.pabrik.service.BatchService;
+import com.nathancorp.pabrik.service.ChangeStampService;
+import com.nathancorp.pabrik.service.ExportService;
 import com.nathancorp.pabrik.service.RiceService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -24,20 +36,59 @@ public class RiceController {
 
     private final RiceService riceService;
 
+    private final ExportService exportService;
+
+    private final ChangeStampService changeStampService;
+
     @GetMapping
-    public Page<Rice> getRice(@RequestParam int page, @RequestParam int size) {
+    public Page<RiceResponse> getRice(@RequestParam int page, @RequestParam int size, WebRequest request) {
+        if (request.checkNotModified(changeStampService.getListETag(StampedTable.RICE))) {
+            return null;
+        }
         Pageable pageable = PageRequest.of(page, size);
         return riceService.getAllRice(pageable);
     }
 
+    @GetMapping("/cursor")
+    public CursorPage<RiceResponse> getRiceAfter(@RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "20") int size,
+                                                 WebRequest request) {
+        if (request.checkNotModified(changeStampService.getListETag(StampedTable.RICE))) {
+            return null;
+        }
+        return riceService.getRiceAfter(cursor, size);
+    }
+
+    @GetMapping("/search")
+    public Page<RiceResponse> searchRice(@ModelAttribute RiceSearchRequest filter,
+                                         @RequestParam int page, @RequestParam int size,
+                                         WebRequest request) {
+        if (request.checkNotModified(changeStampService.getListETag(StampedTable.RICE))) {
+            return null;
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "productionDate", "id"));
+        return riceService.searchRice(filter, pageable);
+    }
+
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportRice(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            HttpServletResponse response) {
+        return Exports.attachment(exportService, response, "rice", format,
+                output -> exportService.exportRice(from, to, format, output));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Rice> getRiceById(@PathVariable String id) {
-        return ResponseEntity.ok(riceService.getRiceById(id));
+    public ResponseEntity<RiceResponse> getRiceById(@PathVariable String id, WebRequest request) {
+        return ETags.detail(request, () -> riceService.getRiceVersion(id),
+                () -> riceService.getRiceById(id), RiceResponse::getVersion);
     }
 
     @PostMapping
-    public ResponseEntity<Rice> postRice(@RequestBody CreateRiceRequest riceRequest) {
-        return ResponseEntity.ok(riceService.createRice(riceRequest.getQuantity()));
+    public ResponseEntity<RiceResponse> postRice(@RequestBody CreateRiceRequest riceRequest) {
+        return ResponseEntity.ok(RiceResponse.from(riceService.createRice(riceRequest.getQuantity())));
     }
 
     @DeleteMapping("/{id}")
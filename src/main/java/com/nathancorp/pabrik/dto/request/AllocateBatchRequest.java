@@ -0,0 +1,21 @@
+package com.nathancorp.pabrik.dto.request;
+
+import com.nathancorp.pabrik.model.Storage;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AllocateBatchRequest {
+    // total paddy input, taken from the oldest available paddies
+    private Double inputQuantity;
+    private Double producedQuantity;
+    // optional, only paddies of this supplier
+    private String supplier;
+    // optional, only paddies in this storage
+    private Storage storage;
+}
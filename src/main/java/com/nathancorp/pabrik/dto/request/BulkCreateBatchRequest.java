@@ -0,0 +1,17 @@
+package com.nathancorp.pabrik.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkCreateBatchRequest {
+    private List<CreateBatchRequest> batches;
+    private BulkMode mode;
+}
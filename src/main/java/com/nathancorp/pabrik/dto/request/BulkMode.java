@@ -0,0 +1,6 @@
+package com.nathancorp.pabrik.dto.request;
+
+public enum BulkMode {
+    ALL_OR_NOTHING, // nothing is created if any item is rejected
+    BEST_EFFORT, // every valid item is created, rejected items are reported
+}
@@ -0,0 +1,6 @@
+package com.nathancorp.pabrik.dto.request;
+
+public enum ExportFormat {
+    CSV,
+    NDJSON
+}
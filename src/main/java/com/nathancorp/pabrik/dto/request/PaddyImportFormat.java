@@ -0,0 +1,8 @@
+package com.nathancorp.pabrik.dto.request;
+
+public enum PaddyImportFormat {
+    // comma separated quantity,price,supplier, with an optional header row naming the columns
+    CSV,
+    // one CreatePaddyRequest JSON object per line
+    NDJSON
+}
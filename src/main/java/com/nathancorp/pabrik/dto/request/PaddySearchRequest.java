@@ -0,0 +1,25 @@
+package com.nathancorp.pabrik.dto.request;
+
+import com.nathancorp.pabrik.model.Storage;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaddySearchRequest {
+    private String supplier;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime purchasedFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime purchasedTo;
+    private Double minPrice;
+    private Double maxPrice;
+    private Storage storage;
+}
@@ -14,4 +14,5 @@ import java.util.Map;
 public class UpdateBatchRequest {
     private boolean isProcessed;
     private Double producedQuantity;
+    private Long version;
 }
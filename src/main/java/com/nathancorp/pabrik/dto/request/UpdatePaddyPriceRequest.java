@@ -0,0 +1,15 @@
+package com.nathancorp.pabrik.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UpdatePaddyPriceRequest {
+    private Double price;
+    private Long version;
+}
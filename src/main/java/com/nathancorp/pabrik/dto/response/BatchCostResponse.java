@@ -0,0 +1,20 @@
+package com.nathancorp.pabrik.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Value
+@Builder
+@AllArgsConstructor
+public class BatchCostResponse {
+    private UUID batchId;
+    private LocalDateTime processingDate;
+    private Double quantity;
+    private Double producedQuantity;
+    private Double inputCost;
+    private Double costPerKg;
+}
@@ -0,0 +1,21 @@
+package com.nathancorp.pabrik.dto.response;
+
+import com.nathancorp.pabrik.model.BatchPaddy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.UUID;
+
+@Value
+@Builder
+@AllArgsConstructor
+public class BatchPaddyResponse {
+    private UUID batchId;
+    private UUID paddyId;
+    private Double quantity;
+
+    public static BatchPaddyResponse from(BatchPaddy allocation) {
+        return new BatchPaddyResponse(allocation.getBatchId(), allocation.getPaddyId(), allocation.getQuantity());
+    }
+}
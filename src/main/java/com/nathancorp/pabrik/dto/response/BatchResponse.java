@@ -0,0 +1,49 @@
+package com.nathancorp.pabrik.dto.response;
+
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.model.Storage;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Value
+@Builder
+@AllArgsConstructor
+public class BatchResponse {
+    private UUID id;
+    private Double quantity;
+    private Storage storage;
+    private LocalDateTime processingDate;
+    private boolean processed;
+    private Double producedQuantity;
+    private Long version;
+    private Double inputCost;
+    private Double costPerKg;
+    private List<BatchPaddyResponse> paddies;
+
+    /**
+     * Maps the batch with its allocations, which must already be loaded
+     */
+    public static BatchResponse from(Batch batch) {
+        return from(batch, batch.getPaddies().stream().map(BatchPaddyResponse::from).toList());
+    }
+
+    public static BatchResponse from(Batch batch, List<BatchPaddyResponse> paddies) {
+        return BatchResponse.builder()
+                .id(batch.getId())
+                .quantity(batch.getQuantity())
+                .storage(batch.getStorage())
+                .processingDate(batch.getProcessingDate())
+                .processed(batch.isProcessed())
+                .producedQuantity(batch.getProducedQuantity())
+                .version(batch.getVersion())
+                .inputCost(batch.getInputCost())
+                .costPerKg(batch.getCostPerKg())
+                .paddies(List.copyOf(paddies))
+                .build();
+    }
+}
@@ -0,0 +1,19 @@
+package com.nathancorp.pabrik.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkBatchResult {
+    private int index;
+    private boolean created;
+    private UUID batchId;
+    private String error;
+}
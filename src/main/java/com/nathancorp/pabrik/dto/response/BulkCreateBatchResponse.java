@@ -0,0 +1,20 @@
+package com.nathancorp.pabrik.dto.response;
+
+import com.nathancorp.pabrik.dto.request.BulkMode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkCreateBatchResponse {
+    private BulkMode mode;
+    private int created;
+    private int rejected;
+    private List<BulkBatchResult> results;
+}
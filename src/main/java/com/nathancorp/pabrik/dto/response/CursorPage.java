@@ -0,0 +1,35 @@
+package com.nathancorp.pabrik.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    // pass back as cursor to get the next page, null on the last page
+    private String nextCursor;
+
+    /**
+     * Builds the page from rows fetched with a limit of size + 1, the extra row only tells there is a next page
+     *
+     * @param rows     up to size + 1 rows in keyset order
+     * @param size     requested page size
+     * @param cursorOf encodes the cursor of a row
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, String> cursorOf) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, rows.size(), null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new CursorPage<>(content, size, cursorOf.apply(content.get(size - 1)));
+    }
+}
@@ -0,0 +1,26 @@
+package com.nathancorp.pabrik.dto.response;
+
+import com.nathancorp.pabrik.model.InventorySummary;
+import com.nathancorp.pabrik.model.Storage;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InventorySummaryResponse {
+    private Storage storage;
+    private Long itemCount;
+    private Double quantity;
+
+    public static InventorySummaryResponse from(InventorySummary summary) {
+        return InventorySummaryResponse.builder()
+                .storage(summary.getStorage())
+                .itemCount(summary.getItemCount())
+                .quantity(summary.getQuantity())
+                .build();
+    }
+}
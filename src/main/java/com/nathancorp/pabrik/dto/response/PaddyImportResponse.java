@@ -0,0 +1,20 @@
+package com.nathancorp.pabrik.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaddyImportResponse {
+    private long imported;
+    private long rejected;
+    private List<RejectedLine> rejectedLines;
+    // true when more lines were rejected than listed in rejectedLines
+    private boolean rejectedLinesTruncated;
+}
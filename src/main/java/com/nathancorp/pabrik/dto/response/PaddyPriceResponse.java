@@ -0,0 +1,13 @@
+package com.nathancorp.pabrik.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.UUID;
+
+@Value
+@AllArgsConstructor
+public class PaddyPriceResponse {
+    private UUID id;
+    private Double price;
+}
@@ -0,0 +1,39 @@
+package com.nathancorp.pabrik.dto.response;
+
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.Storage;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Value
+@Builder
+@AllArgsConstructor
+public class PaddyResponse {
+    private UUID id;
+    private Double quantity;
+    private Double price;
+    private String supplier;
+    private Storage storage;
+    private LocalDateTime purchaseDate;
+    private double processedQuantity;
+    private Double remainingQuantity;
+    private Long version;
+
+    public static PaddyResponse from(Paddy paddy) {
+        return PaddyResponse.builder()
+                .id(paddy.getId())
+                .quantity(paddy.getQuantity())
+                .price(paddy.getPrice())
+                .supplier(paddy.getSupplier())
+                .storage(paddy.getStorage())
+                .purchaseDate(paddy.getPurchaseDate())
+                .processedQuantity(paddy.getProcessedQuantity())
+                .remainingQuantity(paddy.getRemainingQuantity())
+                .version(paddy.getVersion())
+                .build();
+    }
+}
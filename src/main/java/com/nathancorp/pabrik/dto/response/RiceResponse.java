@@ -0,0 +1,39 @@
+package com.nathancorp.pabrik.dto.response;
+
+import com.nathancorp.pabrik.model.Rice;
+import com.nathancorp.pabrik.model.RiceType;
+import com.nathancorp.pabrik.model.Storage;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Value
+@Builder
+@AllArgsConstructor
+public class RiceResponse {
+    private UUID id;
+    private Double quantity;
+    private RiceType riceType;
+    private LocalDateTime productionDate;
+    private Storage storage;
+    // id of the batch the rice was produced by, null for rice created without a batch
+    private UUID batchId;
+    private Long version;
+    private Double costPerKg;
+
+    public static RiceResponse from(Rice rice) {
+        return RiceResponse.builder()
+                .id(rice.getId())
+                .quantity(rice.getQuantity())
+                .riceType(rice.getRiceType())
+                .productionDate(rice.getProductionDate())
+                .storage(rice.getStorage())
+                .batchId(rice.getBatch() == null ? null : rice.getBatch().getId())
+                .version(rice.getVersion())
+                .costPerKg(rice.getCostPerKg())
+                .build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.nathancorp.pabrik.dto.response;
+
+import com.nathancorp.pabrik.model.YieldRollup;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class YieldReportResponse {
+    private LocalDate processingDay;
+    private String supplier;
+    private Long batchCount;
+    private Double inputQuantity;
+    private Double producedQuantity;
+    // producedQuantity / inputQuantity, null without input
+    private Double yield;
+
+    // used by the rebuild query, which only sums the totals
+    public YieldReportResponse(LocalDate processingDay, String supplier, Long batchCount,
+                               Double inputQuantity, Double producedQuantity) {
+        this(processingDay, supplier, batchCount, inputQuantity, producedQuantity, null);
+    }
+
+    public static YieldReportResponse from(YieldRollup rollup) {
+        return YieldReportResponse.builder()
+                .processingDay(rollup.getProcessingDay())
+                .supplier(rollup.getSupplier())
+                .batchCount(rollup.getBatchCount())
+                .inputQuantity(rollup.getInputQuantity())
+                .producedQuantity(rollup.getProducedQuantity())
+                .yield(rollup.getInputQuantity() > 0 ? rollup.getProducedQuantity() / rollup.getInputQuantity() : null)
+                .build();
+    }
+}
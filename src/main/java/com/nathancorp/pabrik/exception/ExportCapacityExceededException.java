@@ -0,0 +1,11 @@
+package com.nathancorp.pabrik.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ExportCapacityExceededException extends RuntimeException {
+    public ExportCapacityExceededException(String message) {
+        super(message);
+    }
+}
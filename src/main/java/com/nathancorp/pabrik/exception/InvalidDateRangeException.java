@@ -0,0 +1,11 @@
+package com.nathancorp.pabrik.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidDateRangeException extends IllegalArgumentException {
+    public InvalidDateRangeException(String message) {
+        super(message);
+    }
+}
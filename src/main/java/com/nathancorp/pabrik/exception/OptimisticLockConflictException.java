@@ -0,0 +1,12 @@
+package com.nathancorp.pabrik.exception;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class OptimisticLockConflictException extends ConcurrencyFailureException {
+    public OptimisticLockConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.nathancorp.pabrik.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnsupportedSearchFilterException extends IllegalArgumentException {
+    public UnsupportedSearchFilterException(String message) {
+        super(message);
+    }
+}
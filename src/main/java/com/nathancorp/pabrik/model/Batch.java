@@ -3,13 +3,19 @@ package com.nathancorp.pabrik.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_batch_processing_date_id", columnList = "processing_date, id"),
+        @Index(name = "idx_batch_is_processed_processing_date_id", columnList = "is_processed, processing_date, id"),
+        @Index(name = "idx_batch_storage_processing_date_id", columnList = "storage, processing_date, id")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -18,7 +24,7 @@ import java.util.UUID;
 @Builder
 public class Batch {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     @Column(updatable = false, nullable = false)
     private UUID id;
 
@@ -32,20 +38,31 @@ public class Batch {
 
     private boolean isProcessed;
 
-    @ManyToMany
-    @JoinTable(
-            name = "batch_paddy",
-            joinColumns = @JoinColumn(name = "batch_id"),
-            inverseJoinColumns = @JoinColumn(name = "paddy_id"))
-    private List<Paddy> paddies;
+    @OneToMany(mappedBy = "batch", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Builder.Default
+    private List<BatchPaddy> paddies = new ArrayList<>();
 
     @OneToMany(mappedBy = "batch")
     private List<Rice> rice;
 
     private Double producedQuantity;
 
-    @ElementCollection
-    @MapKeyColumn(name = "paddy")
-    @Column(name = "paddy_quantity")
-    private Map<String, Double> paddiesAndQuantity;
+    // purchase price of the allocated paddy, set by CostingService
+    private Double inputCost;
+
+    // inputCost / producedQuantity, null while nothing is produced
+    private Double costPerKg;
+
+    // clients send it back with UpdateBatchRequest so lost updates are rejected
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
+    public void addPaddy(Paddy paddy, Double quantity) {
+        paddies.add(BatchPaddy.builder()
+                .batch(this)
+                .paddy(paddy)
+                .quantity(quantity)
+                .build());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.nathancorp.pabrik.model;
+
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Quantity of one paddy allocated to a batch, replacing the former batch_paddy join table
+ * and the paddiesAndQuantity element collection.
+ */
+@Entity
+@Table(name = "batch_paddy_allocation", indexes = {
+        @Index(name = "idx_batch_paddy_allocation_batch_id", columnList = "batch_id"),
+        @Index(name = "idx_batch_paddy_allocation_paddy_id", columnList = "paddy_id")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class BatchPaddy {
+    @Id
+    @UuidV7
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "batch_id", nullable = false, updatable = false)
+    private Batch batch;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "paddy_id", nullable = false, updatable = false)
+    private Paddy paddy;
+
+    @NonNull
+    private Double quantity;
+
+    // reading the id of a lazy reference does not initialize it
+    public UUID getBatchId() {
+        return batch.getId();
+    }
+
+    public UUID getPaddyId() {
+        return paddy.getId();
+    }
+}
@@ -0,0 +1,25 @@
+package com.nathancorp.pabrik.model;
+
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Counter bumped by every transaction that writes to the table, the weak ETag of its list endpoints
+ */
+@Entity
+@Table(name = "change_stamp")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class ChangeStamp {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "table_name", updatable = false, nullable = false)
+    private StampedTable table;
+
+    private long stamp;
+}
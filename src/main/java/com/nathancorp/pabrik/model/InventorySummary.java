@@ -0,0 +1,30 @@
+package com.nathancorp.pabrik.model;
+
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Running stock totals of one storage, kept in step with paddy, batch and rice writes by
+ * {@link com.nathancorp.pabrik.service.InventoryService} so the summary is read without scanning them.
+ */
+@Entity
+@Table(name = "inventory_summary")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class InventorySummary {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(updatable = false, nullable = false)
+    private Storage storage;
+
+    // rows held in the storage, consumed paddies included
+    private long itemCount;
+
+    // remaining quantity for paddy, quantity for batch and rice
+    private double quantity;
+}
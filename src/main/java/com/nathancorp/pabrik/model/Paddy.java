@@ -3,12 +3,19 @@ package com.nathancorp.pabrik.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_paddy_purchase_date_id", columnList = "purchase_date, id"),
+        @Index(name = "idx_paddy_supplier_purchase_date_id", columnList = "supplier, purchase_date, id"),
+        @Index(name = "idx_paddy_storage_purchase_date_id", columnList = "storage, purchase_date, id"),
+        @Index(name = "idx_paddy_price", columnList = "price")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -16,8 +23,13 @@ import java.util.UUID;
 @ToString
 @Builder
 public class Paddy {
+
+    // remaining quantities below this are rounding leftovers of summing quantities in double precision,
+    // a paddy with less left is used up
+    public static final double USED_UP_BELOW = 1e-6;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     @Column(updatable = false, nullable = false)
     private UUID id;
 
@@ -39,6 +51,14 @@ public class Paddy {
 
     private double processedQuantity;
 
+    // quantity - processedQuantity, kept as a column so available paddies can be found through an index
+    private Double remainingQuantity;
+
+    // bumped by every write, including the guarded processed quantity update
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
 //    public void setBatches(Batch batch) {
 //        this.batches.add(batch);
 //    }
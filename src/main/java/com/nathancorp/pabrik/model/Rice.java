@@ -3,11 +3,17 @@ package com.nathancorp.pabrik.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_rice_production_date_id", columnList = "production_date, id"),
+        @Index(name = "idx_rice_batch_id_production_date_id", columnList = "batch_id, production_date, id"),
+        @Index(name = "idx_rice_storage_production_date_id", columnList = "storage, production_date, id")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -16,7 +22,7 @@ import java.util.UUID;
 @Builder
 public class Rice {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     @Column(updatable = false, nullable = false)
     private UUID id;
 
@@ -27,10 +33,18 @@ public class Rice {
 
     private LocalDateTime productionDate;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "batch_id")
     private Batch batch;
 
     private Storage storage;
 
+    // costPerKg of the batch, null for rice created without a batch
+    private Double costPerKg;
+
+    // strong ETag of the rice detail endpoint
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
 }
\ No newline at end of file
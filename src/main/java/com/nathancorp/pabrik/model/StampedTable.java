@@ -0,0 +1,7 @@
+package com.nathancorp.pabrik.model;
+
+public enum StampedTable {
+    PADDY,
+    BATCH,
+    RICE,
+}
@@ -0,0 +1,20 @@
+package com.nathancorp.pabrik.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Generates the id as a time-ordered UUIDv7 (RFC 9562) instead of a random v4, so new rows are
+ * appended to the right edge of the primary key index. The column type stays UUID, existing v4 ids remain valid.
+ */
+@IdGeneratorType(UuidV7Generator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface UuidV7 {
+}
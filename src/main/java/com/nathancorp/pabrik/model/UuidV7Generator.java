@@ -0,0 +1,44 @@
+package com.nathancorp.pabrik.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UUIDv7 layout: 48 bit unix epoch milliseconds, 4 bit version, 12 bit counter (rand_a),
+ * 2 bit variant and 62 random bits. The counter makes ids generated within the same millisecond
+ * strictly increasing; when it overflows the timestamp is advanced by one millisecond.
+ */
+public class UuidV7Generator implements BeforeExecutionGenerator {
+
+    // unix millis shifted left by 12 bits plus the counter of the last generated id
+    private static final AtomicLong LAST_TIMESTAMP_AND_COUNTER = new AtomicLong();
+
+    public static UUID next() {
+        long timestampAndCounter = LAST_TIMESTAMP_AND_COUNTER.updateAndGet(
+                last -> Math.max(last + 1, System.currentTimeMillis() << 12));
+
+        long mostSigBits = (timestampAndCounter >>> 12) << 16 // 48 bit timestamp
+                | 0x7000L                                     // version 7
+                | (timestampAndCounter & 0xFFFL);             // 12 bit counter
+        long leastSigBits = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL
+                | 0x8000000000000000L;                        // variant 10
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return next();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
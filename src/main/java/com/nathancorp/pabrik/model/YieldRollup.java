@@ -0,0 +1,50 @@
+package com.nathancorp.pabrik.model;
+
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Milling totals of one supplier on one processing day, kept in step with batch writes by
+ * {@link com.nathancorp.pabrik.service.YieldService} so yield reports are read without joining batches
+ * to their paddies. A batch mixing paddies of several suppliers is split by their share of its input.
+ */
+@Entity
+@Table(name = "yield_rollup")
+@IdClass(YieldRollup.Key.class)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class YieldRollup {
+    @Id
+    @Column(updatable = false, nullable = false)
+    private LocalDate processingDay;
+
+    // paddies without a supplier are rolled up under an empty supplier
+    @Id
+    @Column(updatable = false, nullable = false)
+    private String supplier;
+
+    // processed batches with paddy of the supplier
+    private long batchCount;
+
+    // paddy quantity of the supplier milled in processed batches
+    private double inputQuantity;
+
+    // produced quantity of those batches, in proportion to the input of the supplier
+    private double producedQuantity;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate processingDay;
+        private String supplier;
+    }
+}
@@ -0,0 +1,27 @@
+package com.nathancorp.pabrik.repository;
+
+
+import com.nathancorp.pabrik.dto.response.BatchPaddyResponse;
+import com.nathancorp.pabrik.model.BatchPaddy;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface BatchPaddyRepository extends JpaRepository<BatchPaddy, UUID> {
+    // served by idx_batch_paddy_allocation_paddy_id
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.BatchPaddyResponse(a.batch.id, a.paddy.id, a.quantity) " +
+            "FROM BatchPaddy a WHERE a.paddy.id = :paddyId")
+    List<BatchPaddyResponse> findAllByPaddyId(UUID paddyId);
+
+    // batches to recost when the price of the paddy is corrected, served by idx_batch_paddy_allocation_paddy_id
+    @Query("SELECT DISTINCT a.batch.id FROM BatchPaddy a WHERE a.paddy.id = :paddyId")
+    List<UUID> findBatchIdsByPaddyId(UUID paddyId);
+
+    // allocations of a whole page of batches in one query, served by idx_batch_paddy_allocation_batch_id
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.BatchPaddyResponse(a.batch.id, a.paddy.id, a.quantity) " +
+            "FROM BatchPaddy a WHERE a.batch.id IN :batchIds")
+    List<BatchPaddyResponse> findAllByBatchIdIn(Collection<UUID> batchIds);
+}
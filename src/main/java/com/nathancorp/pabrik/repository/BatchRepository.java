@@ -1,11 +1,63 @@
 package com.nathancorp.pabrik.repository;
 
 
+import com.nathancorp.pabrik.dto.response.BatchCostResponse;
 import com.nathancorp.pabrik.model.Batch;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface BatchRepository extends JpaRepository<Batch, UUID> {
-}
+public interface BatchRepository extends JpaRepository<Batch, UUID>, JpaSpecificationExecutor<Batch> {
+    // batch details always show their allocations, so load them with the batch in one query
+    @Override
+    @EntityGraph(attributePaths = "paddies")
+    Optional<Batch> findById(UUID id);
+
+    // keyset pages, newest first, served by idx_batch_processing_date_id
+    @Query("SELECT b FROM Batch b ORDER BY b.processingDate DESC, b.id DESC")
+    List<Batch> findFirstKeysetPage(Limit limit);
+
+    @Query("SELECT b FROM Batch b WHERE (b.processingDate, b.id) < (:processingDate, :id) " +
+            "ORDER BY b.processingDate DESC, b.id DESC")
+    List<Batch> findKeysetPageAfter(LocalDateTime processingDate, UUID id, Limit limit);
+
+    // exports, read in chunks of the fetch size with an open cursor instead of loading the whole range,
+    // a null bound leaves that end of the range open
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT b FROM Batch b WHERE (:from IS NULL OR b.processingDate >= :from) " +
+            "AND (:to IS NULL OR b.processingDate < :to) " +
+            "ORDER BY b.processingDate, b.id")
+    Stream<Batch> streamByProcessingDate(LocalDateTime from, LocalDateTime to);
 
+    // batches to cost with their allocations and paddies in one query
+    @Query("SELECT DISTINCT b FROM Batch b LEFT JOIN FETCH b.paddies a LEFT JOIN FETCH a.paddy WHERE b.id IN :ids")
+    List<Batch> findAllWithPaddiesByIdIn(Collection<UUID> ids);
+
+    // batches created before costing existed
+    @Query("SELECT b.id FROM Batch b WHERE b.inputCost IS NULL")
+    List<UUID> findUncostedIds(Limit limit);
+
+    // cost reports, a range scan of idx_batch_processing_date_id
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.BatchCostResponse(" +
+            "b.id, b.processingDate, b.quantity, b.producedQuantity, b.inputCost, b.costPerKg) FROM Batch b " +
+            "WHERE b.processingDate >= :from AND b.processingDate < :to ORDER BY b.processingDate, b.id")
+    List<BatchCostResponse> findCostsByProcessingDate(LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT b.version FROM Batch b WHERE b.id = :id")
+    Optional<Long> findVersionById(UUID id);
+}
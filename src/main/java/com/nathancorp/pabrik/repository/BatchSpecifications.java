@@ -0,0 +1,33 @@
+package com.nathancorp.pabrik.repository;
+
+import com.nathancorp.pabrik.dto.request.BatchSearchRequest;
+import com.nathancorp.pabrik.exception.UnsupportedSearchFilterException;
+import com.nathancorp.pabrik.model.Batch;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public final class BatchSpecifications {
+
+    public static final List<List<String>> INDEXED_FILTERS = List.of(
+            List.of("processing_date", "id"),
+            List.of("is_processed", "processing_date", "id"),
+            List.of("storage", "processing_date", "id"));
+
+    private BatchSpecifications() {
+    }
+
+    /**
+     * @throws UnsupportedSearchFilterException if none of the INDEXED_FILTERS backs the filters that are set
+     */
+    public static Specification<Batch> matching(BatchSearchRequest filter) {
+        SearchSpecifications.requireIndexed(INDEXED_FILTERS,
+                SearchSpecifications.column("is_processed", filter.getProcessed()),
+                SearchSpecifications.column("storage", filter.getStorage()),
+                SearchSpecifications.column("processing_date", filter.getProcessedFrom(), filter.getProcessedTo()));
+        return Specification.allOf(
+                SearchSpecifications.equalTo("isProcessed", filter.getProcessed()),
+                SearchSpecifications.equalTo("storage", filter.getStorage()),
+                SearchSpecifications.between("processingDate", filter.getProcessedFrom(), filter.getProcessedTo()));
+    }
+}
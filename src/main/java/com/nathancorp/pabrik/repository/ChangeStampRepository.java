@@ -0,0 +1,19 @@
+package com.nathancorp.pabrik.repository;
+
+
+import com.nathancorp.pabrik.model.ChangeStamp;
+import com.nathancorp.pabrik.model.StampedTable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface ChangeStampRepository extends JpaRepository<ChangeStamp, StampedTable> {
+    @Modifying
+    @Query("UPDATE ChangeStamp c SET c.stamp = c.stamp + 1 WHERE c.table = :table")
+    int bump(StampedTable table);
+
+    @Query("SELECT c.stamp FROM ChangeStamp c WHERE c.table = :table")
+    Optional<Long> findStamp(StampedTable table);
+}
@@ -0,0 +1,38 @@
+package com.nathancorp.pabrik.repository;
+
+
+import com.nathancorp.pabrik.dto.response.InventorySummaryResponse;
+import com.nathancorp.pabrik.model.InventorySummary;
+import com.nathancorp.pabrik.model.Storage;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface InventorySummaryRepository extends JpaRepository<InventorySummary, Storage> {
+    // relative update, concurrent writers queue on the row lock instead of overwriting each other
+    @Modifying
+    @Query("UPDATE InventorySummary s SET s.itemCount = s.itemCount + :itemCount, s.quantity = s.quantity + :quantity " +
+            "WHERE s.storage = :storage")
+    int addToStorage(Storage storage, long itemCount, double quantity);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM InventorySummary s")
+    List<InventorySummary> findAllForUpdate();
+
+    // totals recomputed from the source tables, only used to rebuild the summary
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.InventorySummaryResponse(" +
+            "p.storage, count(p), coalesce(sum(p.remainingQuantity), 0.0)) FROM Paddy p GROUP BY p.storage")
+    List<InventorySummaryResponse> sumPaddiesByStorage();
+
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.InventorySummaryResponse(" +
+            "b.storage, count(b), coalesce(sum(b.quantity), 0.0)) FROM Batch b GROUP BY b.storage")
+    List<InventorySummaryResponse> sumBatchesByStorage();
+
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.InventorySummaryResponse(" +
+            "r.storage, count(r), coalesce(sum(r.quantity), 0.0)) FROM Rice r GROUP BY r.storage")
+    List<InventorySummaryResponse> sumRiceByStorage();
+}
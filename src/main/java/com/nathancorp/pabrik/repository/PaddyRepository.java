@@ -1,16 +1,63 @@
 package com.nathancorp.pabrik.repository;
 
 
+import com.nathancorp.pabrik.dto.response.PaddyPriceResponse;
+import com.nathancorp.pabrik.dto.response.PaddyResponse;
 import com.nathancorp.pabrik.model.Paddy;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface PaddyRepository extends JpaRepository<Paddy, UUID> {
-    @Query("SELECT p FROM Paddy p WHERE p.processedQuantity < p.quantity")
+public interface PaddyRepository extends JpaRepository<Paddy, UUID>, JpaSpecificationExecutor<Paddy>, PaddyRepositoryCustom {
+    // oldest first, served by the partial index idx_paddy_available_purchase_date (schema-postgresql.sql)
+    @Query(value = "SELECT p FROM Paddy p WHERE p.remainingQuantity > 0 ORDER BY p.purchaseDate, p.id",
+            countQuery = "SELECT count(p) FROM Paddy p WHERE p.remainingQuantity > 0")
     Page<Paddy> findAvailablePaddies(Pageable pageable);
+
+    // loads the available paddy index, oldest first like findAvailablePaddies
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.PaddyResponse(p.id, p.quantity, p.price, p.supplier, " +
+            "p.storage, p.purchaseDate, p.processedQuantity, p.remainingQuantity, p.version) FROM Paddy p " +
+            "WHERE p.remainingQuantity > 0 ORDER BY p.purchaseDate, p.id")
+    Stream<PaddyResponse> streamAvailable();
+
+    // keyset pages, newest first, served by idx_paddy_purchase_date_id
+    @Query("SELECT p FROM Paddy p ORDER BY p.purchaseDate DESC, p.id DESC")
+    List<Paddy> findFirstKeysetPage(Limit limit);
+
+    @Query("SELECT p FROM Paddy p WHERE (p.purchaseDate, p.id) < (:purchaseDate, :id) " +
+            "ORDER BY p.purchaseDate DESC, p.id DESC")
+    List<Paddy> findKeysetPageAfter(LocalDateTime purchaseDate, UUID id, Limit limit);
+
+    // exports, read in chunks of the fetch size with an open cursor instead of loading the whole range,
+    // a null bound leaves that end of the range open
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Paddy p WHERE (:from IS NULL OR p.purchaseDate >= :from) " +
+            "AND (:to IS NULL OR p.purchaseDate < :to) ORDER BY p.purchaseDate, p.id")
+    Stream<Paddy> streamByPurchaseDate(LocalDateTime from, LocalDateTime to);
+
+    // prices as committed, not as cached in the persistence context
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.PaddyPriceResponse(p.id, p.price) FROM Paddy p WHERE p.id IN :ids")
+    List<PaddyPriceResponse> findPricesByIdIn(Collection<UUID> ids);
+
+    // answers conditional GETs without loading the paddy
+    @Query("SELECT p.version FROM Paddy p WHERE p.id = :id")
+    Optional<Long> findVersionById(UUID id);
 }
 
@@ -0,0 +1,16 @@
+package com.nathancorp.pabrik.repository;
+
+import java.util.Map;
+import java.util.UUID;
+
+public interface PaddyRepositoryCustom {
+
+    /**
+     * Atomically adds the quantity to the processed quantity of each paddy, but only where the paddy
+     * still has enough unprocessed quantity. All updates are sent as a single JDBC batch.
+     *
+     * @param paddyAndQuantity paddyId and quantity to be processed, in iteration order
+     * @return updated row count per entry in iteration order, 0 means the paddy was not available
+     */
+    int[] incrementProcessedQuantities(Map<UUID, Double> paddyAndQuantity);
+}
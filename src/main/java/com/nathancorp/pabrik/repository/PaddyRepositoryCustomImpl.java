@@ -0,0 +1,36 @@
+package com.nathancorp.pabrik.repository;
+
+import com.nathancorp.pabrik.model.Paddy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class PaddyRepositoryCustomImpl implements PaddyRepositoryCustom {
+
+    // the row count decides success, so the check and the update happen under one short row lock.
+    // remaining_quantity is derived from the values before the update and maintained in the same statement.
+    // Quantities are doubles, so taking what is left can land a rounding error above or below it: the guard
+    // allows for that, and a leftover below Paddy.USED_UP_BELOW uses the paddy up instead of leaving dust
+    private static final String INCREMENT_PROCESSED_QUANTITY = """
+            UPDATE paddy SET processed_quantity = CASE WHEN quantity - processed_quantity - ? < %1$s
+                    THEN quantity ELSE processed_quantity + ? END,
+                remaining_quantity = CASE WHEN quantity - processed_quantity - ? < %1$s
+                    THEN 0 ELSE quantity - processed_quantity - ? END,
+                version = version + 1
+            WHERE id = ? AND processed_quantity + ? <= quantity + %1$s""".formatted(Paddy.USED_UP_BELOW);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int[] incrementProcessedQuantities(Map<UUID, Double> paddyAndQuantity) {
+        List<Object[]> batchArgs = paddyAndQuantity.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getValue(), entry.getValue(), entry.getValue(),
+                        entry.getKey(), entry.getValue()})
+                .toList();
+        return jdbcTemplate.batchUpdate(INCREMENT_PROCESSED_QUANTITY, batchArgs);
+    }
+}
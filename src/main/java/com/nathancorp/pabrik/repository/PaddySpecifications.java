@@ -0,0 +1,37 @@
+package com.nathancorp.pabrik.repository;
+
+import com.nathancorp.pabrik.dto.request.PaddySearchRequest;
+import com.nathancorp.pabrik.exception.UnsupportedSearchFilterException;
+import com.nathancorp.pabrik.model.Paddy;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public final class PaddySpecifications {
+
+    // a price band is only backed alone, the price index does not serve the date order
+    public static final List<List<String>> INDEXED_FILTERS = List.of(
+            List.of("purchase_date", "id"),
+            List.of("supplier", "purchase_date", "id"),
+            List.of("storage", "purchase_date", "id"),
+            List.of("price"));
+
+    private PaddySpecifications() {
+    }
+
+    /**
+     * @throws UnsupportedSearchFilterException if none of the INDEXED_FILTERS backs the filters that are set
+     */
+    public static Specification<Paddy> matching(PaddySearchRequest filter) {
+        SearchSpecifications.requireIndexed(INDEXED_FILTERS,
+                SearchSpecifications.column("supplier", filter.getSupplier()),
+                SearchSpecifications.column("purchase_date", filter.getPurchasedFrom(), filter.getPurchasedTo()),
+                SearchSpecifications.column("price", filter.getMinPrice(), filter.getMaxPrice()),
+                SearchSpecifications.column("storage", filter.getStorage()));
+        return Specification.allOf(
+                SearchSpecifications.equalTo("supplier", filter.getSupplier()),
+                SearchSpecifications.between("purchaseDate", filter.getPurchasedFrom(), filter.getPurchasedTo()),
+                SearchSpecifications.between("price", filter.getMinPrice(), filter.getMaxPrice()),
+                SearchSpecifications.equalTo("storage", filter.getStorage()));
+    }
+}
@@ -1,11 +1,56 @@
 package com.nathancorp.pabrik.repository;
 
 
+import com.nathancorp.pabrik.dto.response.RiceResponse;
 import com.nathancorp.pabrik.model.Rice;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface RiceRepository extends JpaRepository<Rice, UUID> {
-}
+public interface RiceRepository extends JpaRepository<Rice, UUID>, JpaSpecificationExecutor<Rice> {
+    // r.batch.id reads the foreign key column, the batch itself is not joined
+    @Query(value = "SELECT new com.nathancorp.pabrik.dto.response.RiceResponse(" +
+            "r.id, r.quantity, r.riceType, r.productionDate, r.storage, r.batch.id, r.version, r.costPerKg) FROM Rice r",
+            countQuery = "SELECT count(r) FROM Rice r")
+    Page<RiceResponse> findAllRice(Pageable pageable);
+
+    // keyset pages, newest first, served by idx_rice_production_date_id
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.RiceResponse(" +
+            "r.id, r.quantity, r.riceType, r.productionDate, r.storage, r.batch.id, r.version, r.costPerKg) FROM Rice r " +
+            "ORDER BY r.productionDate DESC, r.id DESC")
+    List<RiceResponse> findFirstKeysetPage(Limit limit);
+
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.RiceResponse(" +
+            "r.id, r.quantity, r.riceType, r.productionDate, r.storage, r.batch.id, r.version, r.costPerKg) FROM Rice r " +
+            "WHERE (r.productionDate, r.id) < (:productionDate, :id) " +
+            "ORDER BY r.productionDate DESC, r.id DESC")
+    List<RiceResponse> findKeysetPageAfter(LocalDateTime productionDate, UUID id, Limit limit);
 
+    // exports as DTOs, so nothing is kept in the persistence context while streaming,
+    // a null bound leaves that end of the range open
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.RiceResponse(" +
+            "r.id, r.quantity, r.riceType, r.productionDate, r.storage, r.batch.id, r.version, r.costPerKg) FROM Rice r " +
+            "WHERE (:from IS NULL OR r.productionDate >= :from) AND (:to IS NULL OR r.productionDate < :to) " +
+            "ORDER BY r.productionDate, r.id")
+    Stream<RiceResponse> streamByProductionDate(LocalDateTime from, LocalDateTime to);
+
+    // rice of batches whose cost changed, served by idx_rice_batch_id_production_date_id
+    List<Rice> findAllByBatchIdIn(Collection<UUID> batchIds);
+
+    @Query("SELECT r.version FROM Rice r WHERE r.id = :id")
+    Optional<Long> findVersionById(UUID id);
+}
@@ -0,0 +1,36 @@
+package com.nathancorp.pabrik.repository;
+
+import com.nathancorp.pabrik.dto.request.RiceSearchRequest;
+import com.nathancorp.pabrik.exception.UnsupportedSearchFilterException;
+import com.nathancorp.pabrik.model.Rice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public final class RiceSpecifications {
+
+    public static final List<List<String>> INDEXED_FILTERS = List.of(
+            List.of("production_date", "id"),
+            List.of("batch_id", "production_date", "id"),
+            List.of("storage", "production_date", "id"));
+
+    private RiceSpecifications() {
+    }
+
+    /**
+     * @throws UnsupportedSearchFilterException if none of the INDEXED_FILTERS backs the filters that are set
+     */
+    public static Specification<Rice> matching(RiceSearchRequest filter) {
+        SearchSpecifications.requireIndexed(INDEXED_FILTERS,
+                SearchSpecifications.column("storage", filter.getStorage()),
+                SearchSpecifications.column("production_date", filter.getProducedFrom(), filter.getProducedTo()),
+                SearchSpecifications.column("batch_id", filter.getBatchId()));
+        Specification<Rice> batch = filter.getBatchId() == null ? null
+                // compares the foreign key column, the batch is not joined
+                : (root, query, cb) -> cb.equal(root.get("batch").get("id"), filter.getBatchId());
+        return Specification.allOf(
+                SearchSpecifications.equalTo("storage", filter.getStorage()),
+                SearchSpecifications.between("productionDate", filter.getProducedFrom(), filter.getProducedTo()),
+                batch);
+    }
+}
@@ -0,0 +1,66 @@
+package com.nathancorp.pabrik.repository;
+
+import com.nathancorp.pabrik.exception.UnsupportedSearchFilterException;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Predicates shared by the search specifications, a null value means the filter is not set
+ * and yields a null specification, which {@link Specification#allOf} skips.
+ * Every search is backed by an index: each INDEXED_FILTERS entry lists the leading columns of one
+ * index, the equality filter first and the date column, which is also the sort key, last. A search
+ * is accepted when the columns it filters on are the first columns of one of these indexes, so the
+ * index finds the matching rows already in page order; any other combination is rejected.
+ */
+final class SearchSpecifications {
+
+    private SearchSpecifications() {
+    }
+
+    static <T> Specification<T> equalTo(String attribute, Object value) {
+        return value == null ? null : (root, query, cb) -> cb.equal(root.get(attribute), value);
+    }
+
+    static <T, Y extends Comparable<? super Y>> Specification<T> between(String attribute, Y from, Y to) {
+        if (from == null && to == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            if (from == null) {
+                return cb.lessThanOrEqualTo(root.get(attribute), to);
+            }
+            if (to == null) {
+                return cb.greaterThanOrEqualTo(root.get(attribute), from);
+            }
+            return cb.between(root.get(attribute), from, to);
+        };
+    }
+
+    /**
+     * @return the column if any of the filter values is set, otherwise null
+     */
+    static String column(String column, Object... values) {
+        return Arrays.stream(values).anyMatch(Objects::nonNull) ? column : null;
+    }
+
+    /**
+     * @param indexedFilters leading columns of the indexes backing the search
+     * @param columns        filtered columns, null for filters that are not set
+     * @throws UnsupportedSearchFilterException if no index leads with exactly the filtered columns
+     */
+    static void requireIndexed(List<List<String>> indexedFilters, String... columns) {
+        Set<String> filtered = new HashSet<>(Arrays.asList(columns));
+        filtered.remove(null);
+        boolean indexed = filtered.isEmpty() || indexedFilters.stream().anyMatch(index ->
+                index.size() >= filtered.size() && filtered.equals(new HashSet<>(index.subList(0, filtered.size()))));
+        if (!indexed) {
+            throw new UnsupportedSearchFilterException("Unsupported filter combination " + filtered
+                    + ", supported are the leading columns of " + indexedFilters);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.nathancorp.pabrik.repository;
+
+
+import com.nathancorp.pabrik.dto.response.YieldReportResponse;
+import com.nathancorp.pabrik.model.YieldRollup;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public interface YieldRollupRepository extends JpaRepository<YieldRollup, YieldRollup.Key>, YieldRollupRepositoryCustom {
+    // relative update, concurrent writers queue on the row lock instead of overwriting each other
+    @Modifying
+    @Query("UPDATE YieldRollup y SET y.batchCount = y.batchCount + :batchCount, " +
+            "y.inputQuantity = y.inputQuantity + :inputQuantity, y.producedQuantity = y.producedQuantity + :producedQuantity " +
+            "WHERE y.processingDay = :processingDay AND y.supplier = :supplier")
+    int addToRollup(LocalDate processingDay, String supplier, long batchCount, double inputQuantity, double producedQuantity);
+
+    // range scan on the primary key, which leads with the day
+    @Query("SELECT y FROM YieldRollup y WHERE y.processingDay BETWEEN :from AND :to " +
+            "AND (:supplier IS NULL OR y.supplier = :supplier) ORDER BY y.processingDay, y.supplier")
+    List<YieldRollup> findInRange(LocalDate from, LocalDate to, String supplier);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT y FROM YieldRollup y")
+    List<YieldRollup> findAllForUpdate();
+
+    // totals recomputed from the batches and their allocations, only used to rebuild the rollup
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.YieldReportResponse(" +
+            "cast(b.processingDate as LocalDate), coalesce(p.supplier, ''), count(distinct b), " +
+            "sum(a.quantity), sum(b.producedQuantity * a.quantity / b.quantity)) " +
+            "FROM BatchPaddy a JOIN a.batch b JOIN a.paddy p WHERE b.isProcessed = true " +
+            "GROUP BY cast(b.processingDate as LocalDate), coalesce(p.supplier, '')")
+    List<YieldReportResponse> sumProcessedBatches();
+
+    // the totals of one batch by supplier, so a batch read back does not load its paddies one by one
+    @Query("SELECT new com.nathancorp.pabrik.dto.response.YieldReportResponse(" +
+            "cast(b.processingDate as LocalDate), coalesce(p.supplier, ''), count(distinct b), " +
+            "sum(a.quantity), sum(b.producedQuantity * a.quantity / b.quantity)) " +
+            "FROM BatchPaddy a JOIN a.batch b JOIN a.paddy p WHERE b.id = :batchId " +
+            "GROUP BY cast(b.processingDate as LocalDate), coalesce(p.supplier, '')")
+    List<YieldReportResponse> sumBatch(UUID batchId);
+}
@@ -0,0 +1,17 @@
+package com.nathancorp.pabrik.repository;
+
+import java.time.LocalDate;
+
+public interface YieldRollupRepositoryCustom {
+
+    /**
+     * Inserts an empty rollup row for the day and supplier unless there is one, on the connection of the
+     * current transaction. A row inserted concurrently is waited for and left alone, without failing the
+     * transaction.
+     *
+     * @param processingDay day of the row
+     * @param supplier      supplier of the row
+     * @return 1 if the row was inserted, 0 if it existed or was inserted concurrently
+     */
+    int insertIfAbsent(LocalDate processingDay, String supplier);
+}
@@ -0,0 +1,54 @@
+package com.nathancorp.pabrik.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+@RequiredArgsConstructor
+public class YieldRollupRepositoryCustomImpl implements YieldRollupRepositoryCustom {
+
+    private static final String INSERT_ON_CONFLICT = """
+            INSERT INTO yield_rollup (processing_day, supplier, batch_count, input_quantity, produced_quantity)
+            VALUES (?, ?, 0, 0, 0) ON CONFLICT DO NOTHING""";
+
+    // the same in standard SQL for databases without ON CONFLICT, such as H2
+    private static final String MERGE = """
+            MERGE INTO yield_rollup y USING (VALUES (CAST(? AS DATE), CAST(? AS VARCHAR(255))))
+                s (processing_day, supplier) ON y.processing_day = s.processing_day AND y.supplier = s.supplier
+            WHEN NOT MATCHED THEN INSERT (processing_day, supplier, batch_count, input_quantity, produced_quantity)
+                VALUES (s.processing_day, s.supplier, 0, 0, 0)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // read from the database the first time, the datasource URL can belong to a proxy or a wrapping driver
+    private volatile Boolean insertOnConflict;
+
+    // plain JDBC, so a failed statement neither reaches Hibernate nor marks the transaction rollback-only
+    @Override
+    public int insertIfAbsent(LocalDate processingDay, String supplier) {
+        if (insertOnConflict()) {
+            return jdbcTemplate.update(INSERT_ON_CONFLICT, processingDay, supplier);
+        }
+        try {
+            return jdbcTemplate.update(MERGE, processingDay, supplier);
+        } catch (DuplicateKeyException e) {
+            // MERGE is not atomic everywhere, a writer that lost the race can still hit the primary key
+            return 0;
+        }
+    }
+
+    private boolean insertOnConflict() {
+        Boolean onConflict = insertOnConflict;
+        if (onConflict == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            onConflict = DatabaseDriver.fromProductName(product) == DatabaseDriver.POSTGRESQL;
+            insertOnConflict = onConflict;
+        }
+        return onConflict;
+    }
+}
@@ -20,6 +20,7 @@ public class AuthenticationService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final UserPrincipalCache userPrincipalCache;
 
     public AuthenticationResponse register(RegisterRequest request) {
         var user = User.builder()
@@ -31,6 +32,7 @@ public class AuthenticationService {
                 .build();
 
         userRepository.save(user);
+        userPrincipalCache.invalidate(user.getEmail());
 
         var jwtToken = jwtService.generateToken(user);
 
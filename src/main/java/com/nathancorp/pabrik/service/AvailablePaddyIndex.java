@@ -0,0 +1,413 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.response.PaddyResponse;
+import com.nathancorp.pabrik.exception.PaddyNotAvailableForProcessingException;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.Storage;
+import com.nathancorp.pabrik.repository.PaddyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Remaining quantity of every available paddy, oldest purchase first, so a batch input can be
+ * allocated FIFO without scanning the paddy table. Writes of this instance are applied after they
+ * commit; writes of other instances are picked up by {@link #reload()}, which runs on startup, once
+ * the index is older than pabrik.paddy-index.max-age and whenever an allocation turned out stale.
+ * The index only proposes allocations, the guarded update of
+ * {@link PaddyService#updatePaddiesProcessedQuantity(Map)} still has the final say.
+ * An allocation reserves what it picked until it is released, so concurrent allocations do not all
+ * pick the same oldest paddies; reservations are kept apart from the entries and survive a reload.
+ * The structures are guarded by locks rather than by monitors, so waiting for them does not pin a
+ * virtual thread.
+ */
+@Component
+public class AvailablePaddyIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailablePaddyIndex.class);
+
+    private static final Comparator<Entry> FIFO = Comparator
+            .comparing((Entry entry) -> entry.purchaseDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(entry -> entry.id);
+
+    private final PaddyRepository paddyRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Duration maxAge;
+
+    private final Clock clock;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // one reload at a time, callers arriving meanwhile wait for it and take its result
+    private final Lock reloadLock = new ReentrantLock();
+
+    // paddyId to the quantity held by unreleased allocations
+    private final Map<UUID, Reservation> reservations = new HashMap<>();
+
+    private Map<UUID, Entry> byId = new HashMap<>();
+
+    private NavigableSet<Entry> oldestFirst = new TreeSet<>(FIFO);
+
+    private Map<String, NavigableSet<Entry>> oldestFirstBySupplier = new HashMap<>();
+
+    private Map<Storage, NavigableSet<Entry>> oldestFirstByStorage = new EnumMap<>(Storage.class);
+
+    // null until the first reload
+    private Instant loadedAt;
+
+    // counts finished reloads
+    private volatile long generation;
+
+    @Autowired
+    public AvailablePaddyIndex(PaddyRepository paddyRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${pabrik.paddy-index.max-age:5m}") Duration maxAge) {
+        this(paddyRepository, transactionManager, maxAge, Clock.systemUTC());
+    }
+
+    AvailablePaddyIndex(PaddyRepository paddyRepository, PlatformTransactionManager transactionManager,
+                        Duration maxAge, Clock clock) {
+        this.paddyRepository = paddyRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    /**
+     * Takes the oldest available paddies until the quantity is covered, the last one possibly in part,
+     * and reserves them. Quantities reserved by other allocations are not available.
+     *
+     * @param quantity total input quantity
+     * @param supplier only paddies of this supplier, null for any
+     * @param storage  only paddies in this storage, null for any
+     * @return paddyId and quantity in purchase order, as accepted by {@link BatchService#createBatch(Map, Double)},
+     * to be given back with {@link #release(Map)} once the transaction consuming it has ended
+     * @throws PaddyNotAvailableForProcessingException if the matching paddies do not cover the quantity
+     */
+    public Map<String, Double> allocate(double quantity, String supplier, Storage storage) {
+        if (isStale()) {
+            reload();
+        }
+        lock.writeLock().lock();
+        try {
+            // the narrowest ordered set, a storage filter on top of a supplier is checked entry by entry
+            NavigableSet<Entry> candidates = supplier != null
+                    ? oldestFirstBySupplier.getOrDefault(supplier, Collections.emptyNavigableSet())
+                    : storage != null ? oldestFirstByStorage.getOrDefault(storage, Collections.emptyNavigableSet())
+                    : oldestFirst;
+            Map<String, Double> allocation = new LinkedHashMap<>();
+            double needed = quantity;
+            for (Entry entry : candidates) {
+                if (needed < Paddy.USED_UP_BELOW) {
+                    break;
+                }
+                if (storage != null && storage != entry.storage) {
+                    continue;
+                }
+                Reservation reservation = reservations.get(entry.id);
+                double available = entry.remaining - (reservation == null ? 0 : reservation.quantity);
+                if (available < Paddy.USED_UP_BELOW) {
+                    continue;
+                }
+                double taken = Math.min(available, needed);
+                allocation.put(entry.id.toString(), taken);
+                needed -= taken;
+            }
+            if (needed >= Paddy.USED_UP_BELOW) {
+                logger.error("Failed to allocate {} of paddy, {} short (supplier {}, storage {})",
+                        quantity, needed, supplier, storage);
+                throw new PaddyNotAvailableForProcessingException(
+                        "Not enough paddy available for processing, " + needed + " short");
+            }
+            allocation.forEach((paddyId, taken) ->
+                    reservations.computeIfAbsent(UUID.fromString(paddyId), id -> new Reservation()).hold(taken));
+            return allocation;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gives back the reservation of an allocation. Once the consuming transaction has committed, the
+     * consumed quantities are already off the remaining quantity, on a rollback they are available again.
+     *
+     * @param allocation as returned by {@link #allocate(double, String, Storage)}
+     */
+    public void release(Map<String, Double> allocation) {
+        lock.writeLock().lock();
+        try {
+            allocation.forEach((paddyId, taken) -> {
+                UUID id = UUID.fromString(paddyId);
+                Reservation reservation = reservations.get(id);
+                if (reservation != null && reservation.free(taken)) {
+                    reservations.remove(id);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds new paddies once the current transaction commits, or right away without one
+     */
+    public void added(Collection<Paddy> paddies) {
+        List<Entry> entries = paddies.stream().map(Entry::of).toList();
+        afterCommit(() -> entries.forEach(this::put));
+    }
+
+    /**
+     * Lowers the remaining quantity of consumed paddies once the current transaction commits
+     *
+     * @param consumed paddyId and consumed quantity
+     */
+    public void consumed(Map<UUID, Double> consumed) {
+        Map<UUID, Double> quantities = Map.copyOf(consumed);
+        afterCommit(() -> quantities.forEach(this::consume));
+    }
+
+    /**
+     * Drops a deleted paddy once the current transaction commits
+     */
+    public void removed(UUID paddyId) {
+        afterCommit(() -> remove(paddyId));
+    }
+
+    /**
+     * Replaces the index with the available paddies as committed, one pass over the partial index
+     * idx_paddy_available_purchase_date. A caller arriving while another reload runs waits for it and
+     * does not load again.
+     */
+    public void reload() {
+        long seen = generation;
+        reloadLock.lock();
+        try {
+            if (generation != seen) {
+                return;
+            }
+            load();
+            generation = seen + 1;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void load() {
+        Map<UUID, Entry> ids = new HashMap<>();
+        NavigableSet<Entry> all = new TreeSet<>(FIFO);
+        Map<String, NavigableSet<Entry>> bySupplier = new HashMap<>();
+        Map<Storage, NavigableSet<Entry>> byStorage = new EnumMap<>(Storage.class);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<PaddyResponse> paddies = paddyRepository.streamAvailable()) {
+                paddies.map(Entry::of).filter(entry -> entry.remaining >= Paddy.USED_UP_BELOW).forEach(entry -> {
+                    ids.put(entry.id, entry);
+                    all.add(entry);
+                    addTo(bySupplier, entry.supplier, entry);
+                    addTo(byStorage, entry.storage, entry);
+                });
+            }
+        });
+        lock.writeLock().lock();
+        try {
+            byId = ids;
+            oldestFirst = all;
+            oldestFirstBySupplier = bySupplier;
+            oldestFirstByStorage = byStorage;
+            loadedAt = clock.instant();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Available paddy index is reloaded, {} paddies", ids.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeIndex() {
+        reload();
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isStale() {
+        lock.readLock().lock();
+        try {
+            return loadedAt == null || loadedAt.plus(maxAge).isBefore(clock.instant());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Entry entry) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(entry.id);
+            if (entry.remaining < Paddy.USED_UP_BELOW) {
+                return;
+            }
+            byId.put(entry.id, entry);
+            oldestFirst.add(entry);
+            addTo(oldestFirstBySupplier, entry.supplier, entry);
+            addTo(oldestFirstByStorage, entry.storage, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void consume(UUID paddyId, double quantity) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = byId.get(paddyId);
+            if (entry == null) {
+                return;
+            }
+            entry.remaining -= quantity;
+            if (entry.remaining < Paddy.USED_UP_BELOW) {
+                removeLocked(paddyId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(UUID paddyId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(paddyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // caller holds the write lock
+    private void removeLocked(UUID paddyId) {
+        Entry entry = byId.remove(paddyId);
+        if (entry == null) {
+            return;
+        }
+        oldestFirst.remove(entry);
+        removeFrom(oldestFirstBySupplier, entry.supplier, entry);
+        removeFrom(oldestFirstByStorage, entry.storage, entry);
+    }
+
+    private static <K> void addTo(Map<K, NavigableSet<Entry>> oldestFirstByKey, K key, Entry entry) {
+        if (key != null) {
+            oldestFirstByKey.computeIfAbsent(key, k -> new TreeSet<>(FIFO)).add(entry);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, NavigableSet<Entry>> oldestFirstByKey, K key, Entry entry) {
+        if (key == null) {
+            return;
+        }
+        Set<Entry> entries = oldestFirstByKey.get(key);
+        entries.remove(entry);
+        if (entries.isEmpty()) {
+            oldestFirstByKey.remove(key);
+        }
+    }
+
+    // a rolled back write must never reach the index
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    // a paddy reserved by several allocations is freed when the last of them is released
+    private static final class Reservation {
+
+        private double quantity;
+
+        private int holders;
+
+        void hold(double taken) {
+            quantity += taken;
+            holders++;
+        }
+
+        // true once nothing is held anymore
+        boolean free(double taken) {
+            quantity -= taken;
+            return --holders == 0;
+        }
+    }
+
+    // only the remaining quantity changes, purchase date and id keep the entry's place in the FIFO order
+    private static final class Entry {
+
+        private final UUID id;
+
+        private final LocalDateTime purchaseDate;
+
+        private final String supplier;
+
+        private final Storage storage;
+
+        private double remaining;
+
+        private Entry(UUID id, LocalDateTime purchaseDate, String supplier, Storage storage, double remaining) {
+            this.id = id;
+            this.purchaseDate = purchaseDate;
+            this.supplier = supplier;
+            this.storage = storage;
+            this.remaining = remaining;
+        }
+
+        static Entry of(Paddy paddy) {
+            return new Entry(paddy.getId(), paddy.getPurchaseDate(), paddy.getSupplier(), paddy.getStorage(),
+                    paddy.getRemainingQuantity() == null ? 0 : paddy.getRemainingQuantity());
+        }
+
+        static Entry of(PaddyResponse paddy) {
+            return new Entry(paddy.getId(), paddy.getPurchaseDate(), paddy.getSupplier(), paddy.getStorage(),
+                    paddy.getRemainingQuantity() == null ? 0 : paddy.getRemainingQuantity());
+        }
+    }
+}
@@ -1,24 +1,47 @@
 package com.nathancorp.pabrik.service;
 
+import com.nathancorp.pabrik.dto.request.BatchSearchRequest;
+import com.nathancorp.pabrik.dto.request.BulkMode;
+import com.nathancorp.pabrik.dto.request.CreateBatchRequest;
+import com.nathancorp.pabrik.dto.response.BatchPaddyResponse;
+import com.nathancorp.pabrik.dto.response.BatchResponse;
+import com.nathancorp.pabrik.dto.response.BulkBatchResult;
+import com.nathancorp.pabrik.dto.response.BulkCreateBatchResponse;
+import com.nathancorp.pabrik.dto.response.CursorPage;
 import com.nathancorp.pabrik.exception.InvalidQuantityException;
+import com.nathancorp.pabrik.exception.OptimisticLockConflictException;
+import com.nathancorp.pabrik.exception.PaddyNotAvailableForProcessingException;
+import com.nathancorp.pabrik.exception.UnsupportedSearchFilterException;
 import com.nathancorp.pabrik.model.Batch;
 import com.nathancorp.pabrik.model.Paddy;
 import com.nathancorp.pabrik.model.Rice;
+import com.nathancorp.pabrik.model.StampedTable;
 import com.nathancorp.pabrik.model.Storage;
+import com.nathancorp.pabrik.repository.BatchPaddyRepository;
 import com.nathancorp.pabrik.repository.BatchRepository;
+import com.nathancorp.pabrik.repository.BatchSpecifications;
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -26,78 +49,363 @@ public class BatchService {
 
     private static final Logger logger = LoggerFactory.getLogger(BatchService.class);
 
+    private static final int BULK_MAX_ATTEMPTS = 3;
+
+    private static final int ALLOCATE_MAX_ATTEMPTS = 3;
+
     private final BatchRepository batchRepository;
 
+    private final BatchPaddyRepository batchPaddyRepository;
+
     private final PaddyService paddyService;
 
     private final RiceService riceService;
 
+    private final OptimisticLockRetry optimisticLockRetry;
+
+    private final InventoryService inventoryService;
+
+    private final DetailCache<BatchResponse> batchCache;
+
+    private final ChangeStampService changeStampService;
+
+    private final YieldService yieldService;
+
+    private final CostingService costingService;
+
+    private final AvailablePaddyIndex availablePaddyIndex;
+
+    @Value("${pabrik.batch.bulk.max-size:1000}")
+    private int bulkMaxSize;
+
+    @Value("${pabrik.batch.bulk.chunk-size:50}")
+    private int bulkChunkSize;
+
+    // a zero chunk size would fail every bulk request with a division by zero instead of failing the start
+    @PostConstruct
+    void validateBulkLimits() {
+        if (bulkMaxSize < 1 || bulkChunkSize < 1) {
+            throw new IllegalArgumentException("Bulk batch creation needs a max-size and chunk-size of at least 1, got "
+                    + bulkMaxSize + " and " + bulkChunkSize);
+        }
+    }
+
     /**
      * Takes a map of paddyId and quantity and produced quantity to create a batch
      * Batch can be processed or unprocessed based on the produced quantity
      * if produced quantity is 0, then the Batch.isProcessed is false
+     * All paddies are fetched with one query and everything is written in a single transaction,
+     * retried on optimistic lock conflicts
      *
      * @param paddyAndQuantity Map<String, Double> paddyId and quantity
      * @param producedQuantity Double produced quantity
      * @return Batch entity
      */
     public Batch createBatch(Map<String, Double> paddyAndQuantity, Double producedQuantity) {
-        if (producedQuantity <= 0) {
+        validateBatch(paddyAndQuantity, producedQuantity);
+
+        return optimisticLockRetry.executeInTransaction("create Batch",
+                () -> saveBatch(paddyAndQuantity, producedQuantity));
+    }
+
+    /**
+     * Creates a batch from the oldest available paddies covering the input quantity, picked from the
+     * in-memory {@link AvailablePaddyIndex} instead of a client-side listing. The picked paddies stay
+     * reserved in the index until the batch transaction has ended. When a picked paddy turns out to be
+     * gone or short in the database, the index is stale, so it is reloaded and the allocation picked again;
+     * when the index itself falls short, the request fails right away.
+     *
+     * @param inputQuantity    total paddy input
+     * @param producedQuantity produced quantity
+     * @param supplier         only paddies of this supplier, null for any
+     * @param storage          only paddies in this storage, null for any
+     * @return Batch entity
+     * @throws PaddyNotAvailableForProcessingException if the matching paddies do not cover the input quantity
+     */
+    public Batch createBatchFromOldestPaddies(Double inputQuantity, Double producedQuantity, String supplier, Storage storage) {
+        if (inputQuantity == null || inputQuantity <= 0) {
+            logger.error("Failed to create Batch, invalid input quantity, should be greater than 0");
+            throw new InvalidQuantityException("Invalid input quantity");
+        }
+        for (int attempt = 1; ; attempt++) {
+            Map<String, Double> allocation = availablePaddyIndex.allocate(inputQuantity, supplier, storage);
+            try {
+                return createBatch(allocation, producedQuantity);
+            } catch (PaddyNotAvailableForProcessingException e) {
+                // picked paddies were consumed by another instance
+                if (attempt >= ALLOCATE_MAX_ATTEMPTS) {
+                    throw e;
+                }
+                logger.info("Paddy allocation is stale, reloading the index (attempt {})", attempt);
+                availablePaddyIndex.reload();
+            } finally {
+                availablePaddyIndex.release(allocation);
+            }
+        }
+    }
+
+    private void validateBatch(Map<String, Double> paddyAndQuantity, Double producedQuantity) {
+        if (producedQuantity == null || producedQuantity <= 0) {
             logger.error("Failed to create Batch, invalid produced quantity, should be greater than 0");
             throw new InvalidQuantityException("Invalid produced quantity");
         }
 
-        if (paddyAndQuantity.isEmpty()) {
+        if (paddyAndQuantity == null || paddyAndQuantity.isEmpty()) {
             logger.error("Failed to create Batch, paddy and quantity is empty");
             throw new IllegalArgumentException("Paddy and quantity is empty");
         }
 
-        List<Paddy> paddies = new ArrayList<>();
-
-        // Check if each paddy has enough quantity
-        for (Map.Entry<String, Double> entry : paddyAndQuantity.entrySet()) {
-            String paddyId = entry.getKey();
-            Double quantity = entry.getValue();
-
-            if (quantity <= 0) {
+        for (Double quantity : paddyAndQuantity.values()) {
+            if (quantity == null || quantity <= 0) {
                 logger.error("Failed to create Batch, invalid quantity, should be greater than 0");
                 throw new InvalidQuantityException("Invalid quantity");
             }
-
-            // Retrieve paddy from database and check quantity
-            Paddy paddy = paddyService.getAvailablePaddyByIdForBatch(paddyId,quantity);
-            paddies.add(paddy);
         }
+    }
+
+    private Batch saveBatch(Map<String, Double> paddyAndQuantity, Double producedQuantity) {
+        // Retrieve all paddies in one query and check each has enough quantity
+        List<Paddy> paddies = paddyService.getAvailablePaddiesForBatch(paddyAndQuantity);
 
+        // consumed first, the paddies stay locked so their prices cannot change before the batch is costed
+        paddyService.updatePaddiesProcessedQuantity(paddyAndQuantity);
+        Map<UUID, Double> prices = paddyService.getPaddyPrices(paddies.stream().map(Paddy::getId).toList());
 
+        return persistBatch(paddies, PaddyService.toPaddyQuantities(paddyAndQuantity), producedQuantity, prices);
+    }
+
+    private Batch persistBatch(List<Paddy> paddies, Map<UUID, Double> paddyQuantities, Double producedQuantity,
+                               Map<UUID, Double> prices) {
         Batch batch = Batch.builder()
                 .producedQuantity(producedQuantity)
                 .processingDate(LocalDateTime.now())
                 .isProcessed(true)
                 .storage(Storage.STORAGE_2)
-                .paddies(paddies)
-                .paddiesAndQuantity(paddyAndQuantity)
-                .quantity(paddyAndQuantity.values().stream().mapToDouble(Double::doubleValue).sum())
+                .quantity(paddyQuantities.values().stream().mapToDouble(Double::doubleValue).sum())
                 .build();
+        // allocations are cascaded, so they are inserted with the batch in one JDBC batch
+        paddies.forEach(paddy -> batch.addPaddy(paddy, paddyQuantities.get(paddy.getId())));
+        costingService.costBatch(batch, prices);
 
-        batch = batchRepository.save(batch);
-        logger.info(String.format("Batch %s is created", batch.getId().toString()));
+        Batch savedBatch = batchRepository.save(batch);
+        inventoryService.record(savedBatch.getStorage(), 1, savedBatch.getQuantity());
+        yieldService.add(savedBatch);
+        changeStampService.touch(StampedTable.BATCH);
+        logger.info(String.format("Batch %s is created", savedBatch.getId().toString()));
 
-        Rice rice = riceService.createRice(batch);
+        Rice rice = riceService.createRice(savedBatch);
         logger.info(String.format("Rice %s is created", rice.getId().toString()));
 
-        paddyService.updatePaddiesProcessedQuantity(paddyAndQuantity, batch);
+        return savedBatch;
+    }
+
+    /**
+     * Creates many batches in one call, e.g. the end-of-shift sync of all milling runs.
+     * Paddy availability of all batches is checked against one combined paddy fetch, the accepted
+     * batches and their rice are written in one transaction and flushed in chunks of JDBC batches,
+     * and all paddy quantities are consumed with one guarded batch update.
+     *
+     * @param batchRequests batches to create
+     * @param mode          ALL_OR_NOTHING creates nothing if any batch is rejected,
+     *                      BEST_EFFORT creates every batch that can be created. Defaults to ALL_OR_NOTHING
+     * @return per batch result in request order
+     */
+    public BulkCreateBatchResponse createBatches(List<CreateBatchRequest> batchRequests, BulkMode mode) {
+        if (batchRequests == null || batchRequests.isEmpty()) {
+            logger.error("Failed to create Batches, batches is empty");
+            throw new IllegalArgumentException("Batches is empty");
+        }
+        if (batchRequests.size() > bulkMaxSize) {
+            logger.error("Failed to create Batches, {} batches exceed the limit of {}", batchRequests.size(), bulkMaxSize);
+            throw new IllegalArgumentException("At most " + bulkMaxSize + " batches can be created at once");
+        }
+        BulkMode bulkMode = mode == null ? BulkMode.ALL_OR_NOTHING : mode;
 
-        return batch;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return optimisticLockRetry.executeInTransaction("create Batches",
+                        () -> saveBatches(batchRequests, bulkMode));
+            } catch (PaddyNotAvailableForProcessingException e) {
+                // paddies were consumed concurrently after validation, best effort validates again on fresh stock
+                if (bulkMode == BulkMode.ALL_OR_NOTHING || attempt >= BULK_MAX_ATTEMPTS) {
+                    throw e;
+                }
+                logger.info("Paddy consumed concurrently while creating Batches, validating again (attempt {})", attempt);
+            }
+        }
     }
 
-    public Page<Batch> getAllBatch(Pageable pageable) {
-        return batchRepository.findAll(pageable);
+    private BulkCreateBatchResponse saveBatches(List<CreateBatchRequest> batchRequests, BulkMode mode) {
+        Map<Integer, String> rejected = new HashMap<>();
+        Map<Integer, Map<UUID, Double>> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < batchRequests.size(); i++) {
+            CreateBatchRequest batchRequest = batchRequests.get(i);
+            try {
+                validateBatch(batchRequest.getPaddyAndQuantity(), batchRequest.getProducedQuantity());
+                accepted.put(i, PaddyService.toPaddyQuantities(batchRequest.getPaddyAndQuantity()));
+            } catch (IllegalArgumentException | InvalidQuantityException e) {
+                rejected.put(i, e.getMessage());
+            }
+        }
+
+        // one combined fetch, then reserve the quantities of each batch in request order
+        Map<UUID, Paddy> paddies = paddyService.getPaddiesByIds(accepted.values().stream()
+                .flatMap(quantities -> quantities.keySet().stream())
+                .collect(Collectors.toSet()));
+        Map<UUID, Double> remaining = new HashMap<>();
+        paddies.values().forEach(paddy -> remaining.put(paddy.getId(), paddy.getQuantity() - paddy.getProcessedQuantity()));
+
+        Iterator<Map.Entry<Integer, Map<UUID, Double>>> iterator = accepted.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Map<UUID, Double>> entry = iterator.next();
+            Optional<UUID> unavailable = entry.getValue().entrySet().stream()
+                    .filter(quantity -> remaining.getOrDefault(quantity.getKey(), 0.0) < quantity.getValue())
+                    .map(Map.Entry::getKey)
+                    .findFirst();
+            if (unavailable.isPresent()) {
+                rejected.put(entry.getKey(), "Paddy not found / not available for processing with id " + unavailable.get());
+                iterator.remove();
+            } else {
+                entry.getValue().forEach((paddyId, quantity) -> remaining.merge(paddyId, -quantity, Double::sum));
+            }
+        }
+
+        if (mode == BulkMode.ALL_OR_NOTHING && !rejected.isEmpty()) {
+            logger.error("Failed to create Batches, {} of {} batches are rejected", rejected.size(), batchRequests.size());
+            return toBulkResponse(batchRequests.size(), mode, Map.of(), rejected);
+        }
+
+        // consumed first, the paddies stay locked so their prices cannot change before the batches are costed
+        Map<String, Double> consumed = new LinkedHashMap<>();
+        accepted.values().forEach(quantities -> quantities.forEach(
+                (paddyId, quantity) -> consumed.merge(paddyId.toString(), quantity, Double::sum)));
+        Map<UUID, Double> prices = Map.of();
+        if (!consumed.isEmpty()) {
+            paddyService.updatePaddiesProcessedQuantity(consumed);
+            prices = paddyService.getPaddyPrices(PaddyService.toPaddyQuantities(consumed).keySet());
+        }
+
+        Map<Integer, UUID> created = new HashMap<>();
+        for (Map.Entry<Integer, Map<UUID, Double>> entry : accepted.entrySet()) {
+            CreateBatchRequest batchRequest = batchRequests.get(entry.getKey());
+            List<Paddy> batchPaddies = entry.getValue().keySet().stream().map(paddies::get).toList();
+            Batch batch = persistBatch(batchPaddies, entry.getValue(), batchRequest.getProducedQuantity(), prices);
+            created.put(entry.getKey(), batch.getId());
+
+            if (created.size() % bulkChunkSize == 0) {
+                batchRepository.flush();
+            }
+        }
+
+        logger.info("{} Batches are created, {} are rejected", created.size(), rejected.size());
+        return toBulkResponse(batchRequests.size(), mode, created, rejected);
+    }
+
+    private static BulkCreateBatchResponse toBulkResponse(int size, BulkMode mode,
+                                                          Map<Integer, UUID> created, Map<Integer, String> rejected) {
+        List<BulkBatchResult> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(BulkBatchResult.builder()
+                    .index(i)
+                    .created(created.containsKey(i))
+                    .batchId(created.get(i))
+                    .error(created.containsKey(i) ? null
+                            : rejected.getOrDefault(i, "Not created, another batch in the request is rejected"))
+                    .build());
+        }
+        return BulkCreateBatchResponse.builder()
+                .mode(mode)
+                .created(created.size())
+                .rejected(size - created.size())
+                .results(results)
+                .build();
+    }
+
+    /**
+     * Lists a page of batches with their allocations in a fixed number of queries:
+     * the page, its count and one query for the allocations of all batches on the page
+     *
+     * @param pageable page to list
+     * @return page of batches
+     */
+    public Page<BatchResponse> getAllBatch(Pageable pageable) {
+        Page<Batch> batches = batchRepository.findAll(pageable);
+        return new PageImpl<>(toBatchResponses(batches.getContent()), pageable, batches.getTotalElements());
+    }
+
+    /**
+     * Lists batches matching every filter that is set, see {@link BatchSpecifications#INDEXED_FILTERS}
+     *
+     * @param filter   processed status, storage and processing date range, null fields are ignored
+     * @param pageable page and sort
+     * @return page of matching batches with their allocations
+     * @throws UnsupportedSearchFilterException if the combination of filters is not backed by an index
+     */
+    public Page<BatchResponse> searchBatches(BatchSearchRequest filter, Pageable pageable) {
+        Page<Batch> batches = batchRepository.findAll(BatchSpecifications.matching(filter), pageable);
+        return new PageImpl<>(toBatchResponses(batches.getContent()), pageable, batches.getTotalElements());
+    }
+
+    /**
+     * Lists batches newest first by seeking past the cursor instead of an offset, without a count query
+     *
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param size   page size
+     * @return page of batches with the cursor of the next page
+     */
+    public CursorPage<BatchResponse> getBatchesAfter(String cursor, int size) {
+        KeysetCursor.validatePageSize(size);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        Limit limit = Limit.of(size + 1);
+        List<Batch> batches = position == null
+                ? batchRepository.findFirstKeysetPage(limit)
+                : batchRepository.findKeysetPageAfter(position.getTimestamp(), position.getId(), limit);
+
+        return CursorPage.of(toBatchResponses(batches), size,
+                batch -> new KeysetCursor(batch.getProcessingDate(), batch.getId()).encode());
     }
 
-    public Batch getBatchById(String id) {
-        return batchRepository.findById(UUID.fromString(id)).orElseThrow(()
-                -> new EntityNotFoundException("Batch with ID " + id + " not found"));
+    // loads the allocations of all batches with one query
+    private List<BatchResponse> toBatchResponses(List<Batch> batches) {
+        if (batches.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, List<BatchPaddyResponse>> allocations = batchPaddyRepository
+                .findAllByBatchIdIn(batches.stream().map(Batch::getId).toList()).stream()
+                .collect(Collectors.groupingBy(BatchPaddyResponse::getBatchId));
+        return batches.stream()
+                .map(batch -> BatchResponse.from(batch, allocations.getOrDefault(batch.getId(), List.of())))
+                .toList();
+    }
+
+    /**
+     * Reads only the version of the batch, enough to answer a conditional GET
+     *
+     * @throws EntityNotFoundException if there is no batch with the id
+     */
+    public Long getBatchVersion(String id) {
+        return batchRepository.findVersionById(UUID.fromString(id))
+                .orElseThrow(() -> new EntityNotFoundException("Batch with ID " + id + " not found"));
+    }
+
+    /**
+     * Reads the batch with its allocations through the batch detail cache
+     *
+     * @throws EntityNotFoundException if there is no batch with the id
+     */
+    public BatchResponse getBatchById(String id) {
+        return batchCache.get(UUID.fromString(id), batchId -> BatchResponse.from(batchRepository.findById(batchId)
+                .orElseThrow(() -> new EntityNotFoundException("Batch with ID " + id + " not found"))));
+    }
+
+    /**
+     * Lists which batches consumed the paddy and how much of it
+     *
+     * @param paddyId id of the paddy
+     * @return allocations of the paddy to batches
+     */
+    public List<BatchPaddyResponse> getAllocationsByPaddyId(String paddyId) {
+        return batchPaddyRepository.findAllByPaddyId(UUID.fromString(paddyId));
     }
 
     /**
@@ -108,21 +416,47 @@ public class BatchService {
      * @return updated Batch entity
      */
     public Batch updateBatchStatus(String batchId, boolean isProcessed, Double producedQuantity) {
+        return updateBatchStatus(batchId, isProcessed, producedQuantity, null);
+    }
+
+    /**
+     * Update batch produced quantity/isProcessed field, retried on optimistic lock conflicts
+     * @param batchId
+     * @param isProcessed
+     * @param producedQuantity
+     * @param expectedVersion version the client last read, null to skip the check
+     * @return updated Batch entity
+     * @throws OptimisticLockConflictException if the batch was modified since expectedVersion
+     */
+    public Batch updateBatchStatus(String batchId, boolean isProcessed, Double producedQuantity, Long expectedVersion) {
         if (producedQuantity <= 0) {
             logger.error("Failed to update Batch, invalid produced quantity, should be greater than 0");
             throw new InvalidQuantityException("Invalid produced quantity, should be greater than 0");
         }
-        Batch batch = batchRepository.findById(UUID.fromString(batchId)).orElseThrow(
-                () -> new EntityNotFoundException("Batch not found"));
+        return optimisticLockRetry.executeInTransaction("update Batch status", () -> {
+            Batch batch = batchRepository.findById(UUID.fromString(batchId)).orElseThrow(
+                    () -> new EntityNotFoundException("Batch not found"));
+
+            if (expectedVersion != null && !expectedVersion.equals(batch.getVersion())) {
+                logger.error("Failed to update Batch {}, version {} is stale, current version is {}",
+                        batchId, expectedVersion, batch.getVersion());
+                throw new OptimisticLockConflictException("Batch was modified concurrently, current version is " + batch.getVersion());
+            }
 
-        batch.setProcessed(isProcessed);
-        batch.setProducedQuantity(producedQuantity);
+            yieldService.remove(batch);
+            batch.setProcessed(isProcessed);
+            batch.setProducedQuantity(producedQuantity);
 
-        batch = batchRepository.save(batch);
+            costingService.updateOutputCost(batch);
+            batch = batchRepository.save(batch);
+            yieldService.add(batch);
+            batchCache.invalidate(batch.getId());
+            changeStampService.touch(StampedTable.BATCH);
 
-        logger.info(String.format("Batch %s updated with processed status: %s and produced quantity: %f",
-                batch.getId(), isProcessed, batch.getProducedQuantity()));
+            logger.info(String.format("Batch %s updated with processed status: %s and produced quantity: %f",
+                    batch.getId(), isProcessed, batch.getProducedQuantity()));
 
-        return batch;
+            return batch;
+        });
     }
 }
@@ -0,0 +1,109 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.model.ChangeStamp;
+import com.nathancorp.pabrik.model.StampedTable;
+import com.nathancorp.pabrik.repository.ChangeStampRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Per table change stamps behind the weak ETags of the list endpoints. Writers call
+ * {@link #touch(StampedTable)}; each stamp is bumped once per transaction, right before it commits,
+ * so a list ETag changes whenever a committed write may have changed the list.
+ */
+@Service
+public class ChangeStampService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStampService.class);
+
+    private final ChangeStampRepository changeStampRepository;
+
+    private final TransactionOperations transactionOperations;
+
+    public ChangeStampService(ChangeStampRepository changeStampRepository,
+                              TransactionOperations transactionOperations) {
+        this.changeStampRepository = changeStampRepository;
+        this.transactionOperations = transactionOperations;
+    }
+
+    /**
+     * Marks the table as changed by the current transaction, or right away without one
+     */
+    public void touch(StampedTable table) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionOperations.executeWithoutResult(status -> bump(EnumSet.of(table)));
+            return;
+        }
+        TouchedTables touched = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(TouchedTables.class::isInstance)
+                .map(TouchedTables.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    TouchedTables tables = new TouchedTables();
+                    TransactionSynchronizationManager.registerSynchronization(tables);
+                    return tables;
+                });
+        touched.tables.add(table);
+    }
+
+    /**
+     * Weak ETag of the lists of the table, read with one primary key lookup
+     *
+     * @return the ETag, null while the stamp is missing so no list is reported as not modified
+     */
+    public String getListETag(StampedTable table) {
+        return changeStampRepository.findStamp(table)
+                .map(stamp -> "W/\"" + stamp + "\"")
+                .orElse(null);
+    }
+
+    // starts from the clock, so a recreated database does not hand out ETags of the old one
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeStamps() {
+        for (StampedTable table : StampedTable.values()) {
+            if (changeStampRepository.existsById(table)) {
+                continue;
+            }
+            try {
+                changeStampRepository.save(new ChangeStamp(table, System.currentTimeMillis()));
+            } catch (DataIntegrityViolationException e) {
+                logger.info("Change stamp of {} is initialized by another instance", table);
+            }
+        }
+    }
+
+    // tables in enum order, so transactions touching several stamps lock them in the same order
+    private void bump(Set<StampedTable> tables) {
+        for (StampedTable table : tables) {
+            if (changeStampRepository.bump(table) == 0) {
+                logger.error("Change stamp of {} is missing, list ETags of it are not refreshed", table);
+            }
+        }
+    }
+
+    private class TouchedTables implements TransactionSynchronization {
+
+        private final Set<StampedTable> tables = EnumSet.noneOf(StampedTable.class);
+
+        @Override
+        public int getOrder() {
+            return CommitOrder.CHANGE_STAMP;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            bump(tables);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.nathancorp.pabrik.service;
+
+/**
+ * Order of the before commit hooks that update rows shared by all writers. Every transaction locks
+ * the inventory summary, then the yield rollups, then the change stamps, whatever order it recorded
+ * its changes in, so two committing writers never wait on each other's rows.
+ */
+final class CommitOrder {
+
+    static final int INVENTORY_SUMMARY = 0;
+
+    static final int YIELD_ROLLUP = 1;
+
+    static final int CHANGE_STAMP = 2;
+
+    private CommitOrder() {
+    }
+}
@@ -0,0 +1,187 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.response.BatchCostResponse;
+import com.nathancorp.pabrik.dto.response.BatchResponse;
+import com.nathancorp.pabrik.dto.response.RiceResponse;
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.model.BatchPaddy;
+import com.nathancorp.pabrik.model.Rice;
+import com.nathancorp.pabrik.model.StampedTable;
+import com.nathancorp.pabrik.repository.BatchPaddyRepository;
+import com.nathancorp.pabrik.repository.BatchRepository;
+import com.nathancorp.pabrik.repository.RiceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Carries the purchase price of paddy into the cost of the batches and rice made from it.
+ * A batch costs the quantity it took of each paddy times that paddy's price, its cost per kg is that
+ * input cost over the produced quantity, and its rice carries the same cost per kg. Costs are stored
+ * on the rows when a batch is created or its output changes, and a price correction recosts only the
+ * batches that took the corrected paddy, so cost reports are plain reads.
+ */
+@Service
+public class CostingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CostingService.class);
+
+    private static final int BACKFILL_CHUNK_SIZE = 500;
+
+    private final BatchRepository batchRepository;
+
+    private final BatchPaddyRepository batchPaddyRepository;
+
+    private final RiceRepository riceRepository;
+
+    private final DetailCache<BatchResponse> batchCache;
+
+    private final DetailCache<RiceResponse> riceCache;
+
+    private final ChangeStampService changeStampService;
+
+    private final TransactionOperations transactionOperations;
+
+    private final int maxReportDays;
+
+    public CostingService(BatchRepository batchRepository,
+                          BatchPaddyRepository batchPaddyRepository,
+                          RiceRepository riceRepository,
+                          DetailCache<BatchResponse> batchCache,
+                          DetailCache<RiceResponse> riceCache,
+                          ChangeStampService changeStampService,
+                          TransactionOperations transactionOperations,
+                          @Value("${pabrik.reports.cost.max-days:366}") int maxReportDays) {
+        this.batchRepository = batchRepository;
+        this.batchPaddyRepository = batchPaddyRepository;
+        this.riceRepository = riceRepository;
+        this.batchCache = batchCache;
+        this.riceCache = riceCache;
+        this.changeStampService = changeStampService;
+        this.transactionOperations = transactionOperations;
+        this.maxReportDays = maxReportDays;
+    }
+
+    /**
+     * Sets the input cost and cost per kg of a new batch from its allocations
+     *
+     * @param batch  batch with its allocations added
+     * @param prices price of each allocated paddy, read while the paddies are locked so a concurrent
+     *               price correction either sees this batch or is seen by it
+     */
+    public void costBatch(Batch batch, Map<UUID, Double> prices) {
+        double inputCost = 0;
+        for (BatchPaddy allocation : batch.getPaddies()) {
+            Double price = prices.getOrDefault(allocation.getPaddy().getId(), allocation.getPaddy().getPrice());
+            inputCost += allocation.getQuantity() * (price == null ? 0 : price);
+        }
+        batch.setInputCost(inputCost);
+        batch.setCostPerKg(costPerKg(inputCost, batch.getProducedQuantity()));
+    }
+
+    /**
+     * Updates the cost per kg of a batch and its rice after its produced quantity changed.
+     * Must run inside the caller's transaction.
+     *
+     * @param batch batch with the new produced quantity
+     */
+    public void updateOutputCost(Batch batch) {
+        if (batch.getInputCost() == null) {
+            recost(List.of(batch));
+            return;
+        }
+        Double costPerKg = costPerKg(batch.getInputCost(), batch.getProducedQuantity());
+        if (costPerKg == null ? batch.getCostPerKg() == null : costPerKg.equals(batch.getCostPerKg())) {
+            return;
+        }
+        batch.setCostPerKg(costPerKg);
+        updateRiceCost(Map.of(batch.getId(), batch));
+    }
+
+    /**
+     * Recosts the batches that took the paddy and their rice after its price was corrected.
+     * Must run inside the caller's transaction, after the new price is flushed.
+     *
+     * @param paddyId id of the corrected paddy
+     * @return number of recosted batches
+     */
+    public int recostBatchesOfPaddy(UUID paddyId) {
+        List<UUID> batchIds = batchPaddyRepository.findBatchIdsByPaddyId(paddyId);
+        if (batchIds.isEmpty()) {
+            return 0;
+        }
+        recost(batchRepository.findAllWithPaddiesByIdIn(batchIds));
+        logger.info("{} Batches are recosted after the price of Paddy {} changed", batchIds.size(), paddyId);
+        return batchIds.size();
+    }
+
+    /**
+     * Reads the stored costs of the batches processed in the range
+     *
+     * @param from first day of the range
+     * @param to   last day of the range, inclusive
+     * @return costs in processing order
+     * @throws com.nathancorp.pabrik.exception.InvalidDateRangeException if the range is reversed or too long
+     */
+    public List<BatchCostResponse> getCostReport(LocalDate from, LocalDate to) {
+        ReportRange.validate(from, to, maxReportDays);
+        return batchRepository.findCostsByProcessingDate(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+    }
+
+    // batches created before costing existed have no cost yet
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCosts() {
+        int costed = 0;
+        List<UUID> batchIds;
+        do {
+            batchIds = batchRepository.findUncostedIds(Limit.of(BACKFILL_CHUNK_SIZE));
+            if (!batchIds.isEmpty()) {
+                List<UUID> chunk = batchIds;
+                transactionOperations.executeWithoutResult(status -> recost(batchRepository.findAllWithPaddiesByIdIn(chunk)));
+                costed += batchIds.size();
+            }
+        } while (batchIds.size() == BACKFILL_CHUNK_SIZE);
+        if (costed > 0) {
+            logger.info("{} Batches without cost are costed", costed);
+        }
+    }
+
+    // batches with their allocations and paddies loaded, the managed rows are updated on commit
+    private void recost(List<Batch> batches) {
+        for (Batch batch : batches) {
+            costBatch(batch, Map.of());
+        }
+        batchCache.invalidateAll(batches.stream().map(Batch::getId).toList());
+        changeStampService.touch(StampedTable.BATCH);
+        updateRiceCost(batches.stream().collect(Collectors.toMap(Batch::getId, Function.identity())));
+    }
+
+    private void updateRiceCost(Map<UUID, Batch> batches) {
+        List<Rice> rice = riceRepository.findAllByBatchIdIn(batches.keySet());
+        if (rice.isEmpty()) {
+            return;
+        }
+        rice.forEach(r -> r.setCostPerKg(batches.get(r.getBatch().getId()).getCostPerKg()));
+        riceCache.invalidateAll(rice.stream().map(Rice::getId).toList());
+        changeStampService.touch(StampedTable.RICE);
+    }
+
+    static Double costPerKg(Double inputCost, Double producedQuantity) {
+        if (inputCost == null || producedQuantity == null || producedQuantity <= 0) {
+            return null;
+        }
+        return inputCost / producedQuantity;
+    }
+}
@@ -0,0 +1,85 @@
+package com.nathancorp.pabrik.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded TTL cache of detail DTOs keyed by id, sitting in front of the getById lookups.
+ * Values must be immutable, they are handed out to every caller. Anything that changes an entry
+ * must call {@link #invalidate(UUID)}; inside a transaction the entry is evicted again after it
+ * completes, so a read racing the write cannot keep the uncommitted state cached.
+ * Hits, misses and evictions are exported as cache.* metrics tagged with the cache name.
+ * <p>
+ * Misses are loaded outside the cache: Caffeine's own loading get runs the loader while holding a
+ * lock, which pins a virtual thread to its carrier for the whole database round trip.
+ *
+ * @param <V> cached DTO
+ */
+public class DetailCache<V> {
+
+    private final Cache<UUID, V> entries;
+
+    // bumped by every eviction, a load that overlapped one is not left in the cache
+    private final AtomicLong evictions = new AtomicLong();
+
+    public DetailCache(MeterRegistry meterRegistry, String name, long maxSize, Duration ttl) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, name);
+    }
+
+    /**
+     * Returns the cached value for the id, loading it with the given loader on a miss.
+     * Loader exceptions (e.g. entity not found) are propagated and nothing is cached.
+     */
+    public V get(UUID id, Function<UUID, V> loader) {
+        V cached = entries.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        long evictionsBeforeLoad = evictions.get();
+        V loaded = loader.apply(id);
+        entries.put(id, loaded);
+        // an eviction that raced the load either sees this entry or is seen here
+        if (evictions.get() != evictionsBeforeLoad) {
+            entries.invalidate(id);
+        }
+        return loaded;
+    }
+
+    public void invalidate(UUID id) {
+        invalidateAll(List.of(id));
+    }
+
+    public void invalidateAll(Collection<UUID> ids) {
+        evict(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<UUID> evicted = List.copyOf(ids);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(evicted);
+                }
+            });
+        }
+    }
+
+    private void evict(Collection<UUID> ids) {
+        evictions.incrementAndGet();
+        entries.invalidateAll(ids);
+    }
+}
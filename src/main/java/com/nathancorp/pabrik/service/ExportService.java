@@ -0,0 +1,250 @@
+package com.nathancorp.pabrik.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathancorp.pabrik.dto.request.ExportFormat;
+import com.nathancorp.pabrik.dto.response.BatchResponse;
+import com.nathancorp.pabrik.dto.response.PaddyResponse;
+import com.nathancorp.pabrik.dto.response.RiceResponse;
+import com.nathancorp.pabrik.exception.ExportCapacityExceededException;
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.repository.BatchRepository;
+import com.nathancorp.pabrik.repository.PaddyRepository;
+import com.nathancorp.pabrik.repository.RiceRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Exports paddies, batches and rice as CSV or NDJSON for month-end reconciliation. Rows are read from an
+ * open cursor in chunks of the query fetch size and written one by one, entities are detached once
+ * written, so memory stays flat whatever the size of the date range. Each export runs in one read-only
+ * transaction, which keeps the cursor and its connection open, so at most pabrik.export.max-concurrent
+ * exports run at once.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    private static final String PADDY_COLUMNS =
+            "id,quantity,price,supplier,storage,purchaseDate,processedQuantity,remainingQuantity,version";
+
+    // allocations are left out so every batch is one flat row, see GET /api/v1/batch/paddy/{paddyId}
+    private static final String BATCH_COLUMNS =
+            "id,quantity,storage,processingDate,processed,producedQuantity,version,inputCost,costPerKg";
+
+    private static final String RICE_COLUMNS = "id,quantity,riceType,productionDate,storage,batchId,version,costPerKg";
+
+    private final PaddyRepository paddyRepository;
+
+    private final BatchRepository batchRepository;
+
+    private final RiceRepository riceRepository;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ObjectMapper objectMapper;
+
+    private final Semaphore slots;
+
+    private final int maxConcurrent;
+
+    private final Duration timeout;
+
+    public ExportService(PaddyRepository paddyRepository,
+                         BatchRepository batchRepository,
+                         RiceRepository riceRepository,
+                         EntityManager entityManager,
+                         PlatformTransactionManager transactionManager,
+                         ObjectMapper objectMapper,
+                         @Value("${pabrik.export.max-concurrent:2}") int maxConcurrent,
+                         @Value("${pabrik.export.timeout:30m}") Duration timeout) {
+        this.paddyRepository = paddyRepository;
+        this.batchRepository = batchRepository;
+        this.riceRepository = riceRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.slots = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Takes one of the export slots, to be held while the export runs. Taken before the response is
+     * started, so a rejected export is answered with a plain 503.
+     *
+     * @return the slot, given back when it is closed
+     * @throws ExportCapacityExceededException if every slot is taken
+     */
+    public Slot acquireSlot() {
+        if (!slots.tryAcquire()) {
+            logger.error("Failed to start export, all {} export slots are taken", maxConcurrent);
+            throw new ExportCapacityExceededException("Too many concurrent exports, please retry shortly");
+        }
+        return new Slot(slots);
+    }
+
+    /**
+     * How long an export may take to be sent before its request times out, pabrik.export.timeout
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Writes the paddies purchased in the range, oldest first
+     *
+     * @param from   inclusive start of the purchase date range, null for no start
+     * @param to     exclusive end of the purchase date range, null for no end
+     * @param format CSV with a header row or NDJSON
+     * @param output receives the export, not closed
+     * @return number of exported paddies
+     */
+    public long exportPaddies(LocalDateTime from, LocalDateTime to, ExportFormat format, OutputStream output) {
+        return export("Paddies", format, output, PADDY_COLUMNS,
+                () -> paddyRepository.streamByPurchaseDate(from, to),
+                PaddyResponse::from, entityManager::detach,
+                paddy -> Arrays.asList(paddy.getId(), paddy.getQuantity(), paddy.getPrice(), paddy.getSupplier(),
+                        paddy.getStorage(), paddy.getPurchaseDate(), paddy.getProcessedQuantity(),
+                        paddy.getRemainingQuantity(), paddy.getVersion()));
+    }
+
+    /**
+     * Writes the batches processed in the range, oldest first, without their allocations
+     *
+     * @param from   inclusive start of the processing date range, null for no start
+     * @param to     exclusive end of the processing date range, null for no end
+     * @param format CSV with a header row or NDJSON
+     * @param output receives the export, not closed
+     * @return number of exported batches
+     */
+    public long exportBatches(LocalDateTime from, LocalDateTime to, ExportFormat format, OutputStream output) {
+        return export("Batches", format, output, BATCH_COLUMNS,
+                () -> batchRepository.streamByProcessingDate(from, to),
+                (Batch batch) -> BatchResponse.from(batch, List.of()), entityManager::detach,
+                batch -> Arrays.asList(batch.getId(), batch.getQuantity(), batch.getStorage(), batch.getProcessingDate(),
+                        batch.isProcessed(), batch.getProducedQuantity(), batch.getVersion(), batch.getInputCost(),
+                        batch.getCostPerKg()));
+    }
+
+    /**
+     * Writes the rice produced in the range, oldest first
+     *
+     * @param from   inclusive start of the production date range, null for no start
+     * @param to     exclusive end of the production date range, null for no end
+     * @param format CSV with a header row or NDJSON
+     * @param output receives the export, not closed
+     * @return number of exported rice
+     */
+    public long exportRice(LocalDateTime from, LocalDateTime to, ExportFormat format, OutputStream output) {
+        // streamed as DTOs, nothing to detach
+        return export("Rice", format, output, RICE_COLUMNS,
+                () -> riceRepository.streamByProductionDate(from, to),
+                Function.identity(), rice -> { },
+                rice -> Arrays.asList(rice.getId(), rice.getQuantity(), rice.getRiceType(), rice.getProductionDate(),
+                        rice.getStorage(), rice.getBatchId(), rice.getVersion(), rice.getCostPerKg()));
+    }
+
+    private <E, D> long export(String name, ExportFormat format, OutputStream output, String columns,
+                               Supplier<Stream<E>> query, Function<E, D> toResponse, Consumer<E> written,
+                               Function<D, List<Object>> csvValues) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        Long exported = readOnlyTransaction.execute(status -> {
+            long rows = 0;
+            try (Stream<E> stream = query.get()) {
+                if (format == ExportFormat.CSV) {
+                    writer.write(columns);
+                    writer.write('\n');
+                }
+                for (E row : (Iterable<E>) stream::iterator) {
+                    D response = toResponse.apply(row);
+                    writer.write(format == ExportFormat.CSV ? toCsvLine(csvValues.apply(response)) : toJson(response));
+                    writer.write('\n');
+                    written.accept(row);
+                    rows++;
+                }
+                writer.flush();
+            } catch (IOException e) {
+                logger.error("Failed to export {} after {} rows, could not write: {}", name, rows, e.getMessage());
+                throw new UncheckedIOException(e);
+            }
+            return rows;
+        });
+        logger.info("{} {} are exported as {}", exported, name, format);
+        return exported == null ? 0 : exported;
+    }
+
+    private String toJson(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write export row: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    // quotes values containing commas, quotes or line breaks, "" inside quotes is an escaped quote
+    private static String toCsvLine(List<Object> values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = values.get(i);
+            String text = value == null ? "" : value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                line.append('"').append(text.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(text);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * A taken export slot, closing it more than once gives it back once
+     */
+    public static final class Slot implements AutoCloseable {
+
+        private final Semaphore slots;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Slot(Semaphore slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.response.InventorySummaryResponse;
+import com.nathancorp.pabrik.model.InventorySummary;
+import com.nathancorp.pabrik.model.Storage;
+import com.nathancorp.pabrik.repository.InventorySummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps one row of stock totals per {@link Storage}. Writers record their changes with
+ * {@link #record(Storage, long, double)}, which are summed up per transaction and applied right before
+ * it commits, so a transaction touches each summary row once and holds its lock only until the commit.
+ * {@link #rebuild()} recomputes the totals from the paddy, batch and rice tables to repair drift.
+ */
+@Service
+public class InventoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryService.class);
+
+    private final InventorySummaryRepository inventorySummaryRepository;
+
+    private final TransactionOperations transactionOperations;
+
+    public InventoryService(InventorySummaryRepository inventorySummaryRepository,
+                            TransactionOperations transactionOperations) {
+        this.inventorySummaryRepository = inventorySummaryRepository;
+        this.transactionOperations = transactionOperations;
+    }
+
+    /**
+     * Reads the totals of every storage, one row each, storages without a row are reported as empty
+     *
+     * @return totals in storage order
+     */
+    public List<InventorySummaryResponse> getSummary() {
+        Map<Storage, InventorySummary> summaries = inventorySummaryRepository.findAll().stream()
+                .collect(Collectors.toMap(InventorySummary::getStorage, Function.identity()));
+        return Arrays.stream(Storage.values())
+                .map(storage -> InventorySummaryResponse.from(
+                        summaries.getOrDefault(storage, new InventorySummary(storage, 0, 0))))
+                .toList();
+    }
+
+    /**
+     * Adds to the totals of a storage in the current transaction, or right away without one
+     *
+     * @param storage   storage of the changed rows
+     * @param itemCount rows added, negative for removed rows
+     * @param quantity  quantity added, negative for removed or consumed quantity
+     */
+    public void record(Storage storage, long itemCount, double quantity) {
+        if (storage == null || (itemCount == 0 && quantity == 0)) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionOperations.executeWithoutResult(status -> apply(Map.of(storage, new double[]{itemCount, quantity})));
+            return;
+        }
+        PendingChanges pending = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(PendingChanges.class::isInstance)
+                .map(PendingChanges.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    PendingChanges changes = new PendingChanges();
+                    TransactionSynchronizationManager.registerSynchronization(changes);
+                    return changes;
+                });
+        pending.add(storage, itemCount, quantity);
+    }
+
+    /**
+     * Recomputes every total from the paddy, batch and rice tables. The summary rows are locked first,
+     * so writers committing meanwhile wait and apply their change on top of the rebuilt totals.
+     *
+     * @return rebuilt totals in storage order
+     */
+    public List<InventorySummaryResponse> rebuild() {
+        List<InventorySummaryResponse> summary = transactionOperations.execute(status -> {
+            Map<Storage, InventorySummary> rows = new EnumMap<>(Storage.class);
+            inventorySummaryRepository.findAllForUpdate().forEach(row -> rows.put(row.getStorage(), row));
+            for (Storage storage : Storage.values()) {
+                rows.computeIfAbsent(storage, missing -> new InventorySummary(missing, 0, 0));
+                rows.get(storage).setItemCount(0);
+                rows.get(storage).setQuantity(0);
+            }
+
+            for (List<InventorySummaryResponse> totals : List.of(inventorySummaryRepository.sumPaddiesByStorage(),
+                    inventorySummaryRepository.sumBatchesByStorage(), inventorySummaryRepository.sumRiceByStorage())) {
+                for (InventorySummaryResponse total : totals) {
+                    if (total.getStorage() == null) {
+                        continue;
+                    }
+                    InventorySummary row = rows.get(total.getStorage());
+                    row.setItemCount(row.getItemCount() + total.getItemCount());
+                    row.setQuantity(row.getQuantity() + total.getQuantity());
+                }
+            }
+            return inventorySummaryRepository.saveAll(rows.values()).stream()
+                    .map(InventorySummaryResponse::from)
+                    .toList();
+        });
+        logger.info("Inventory summary is rebuilt: {}", summary);
+        return summary;
+    }
+
+    // the first start on an existing database has no summary yet
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeSummary() {
+        if (inventorySummaryRepository.count() >= Storage.values().length) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Inventory summary is initialized by another instance: {}", e.getMessage());
+        }
+    }
+
+    // storages in enum order, so transactions touching several rows lock them in the same order
+    private void apply(Map<Storage, double[]> changes) {
+        new EnumMap<>(changes).forEach((storage, change) -> {
+            int updated = inventorySummaryRepository.addToStorage(storage, (long) change[0], change[1]);
+            if (updated == 0) {
+                logger.error("Inventory summary of {} is missing, rebuild it to include this change", storage);
+            }
+        });
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final Map<Storage, double[]> changes = new EnumMap<>(Storage.class);
+
+        void add(Storage storage, long itemCount, double quantity) {
+            double[] change = changes.computeIfAbsent(storage, s -> new double[2]);
+            change[0] += itemCount;
+            change[1] += quantity;
+        }
+
+        @Override
+        public int getOrder() {
+            return CommitOrder.INVENTORY_SUMMARY;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            apply(changes);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.model.Role;
+import io.jsonwebtoken.Claims;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable view of a token whose signature has already been verified by {@link JwtService}.
+ * Holding this instead of the raw token lets callers read the subject, expiry and extra claims
+ * without parsing or verifying the token again.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class JwtClaims {
+
+    public static final String USER_ID = "uid";
+
+    public static final String ROLE = "role";
+
+    private final String subject;
+
+    private final Instant expiration;
+
+    private final Map<String, Object> extraClaims;
+
+    static JwtClaims from(Claims claims) {
+        Map<String, Object> extraClaims = new HashMap<>(claims);
+        extraClaims.remove(Claims.SUBJECT);
+        extraClaims.remove(Claims.EXPIRATION);
+        extraClaims.remove(Claims.ISSUED_AT);
+        return new JwtClaims(
+                claims.getSubject(),
+                claims.getExpiration().toInstant(),
+                Map.copyOf(extraClaims)
+        );
+    }
+
+    public boolean isExpired() {
+        return expiration.isBefore(Instant.now());
+    }
+
+    public Object getClaim(String name) {
+        return extraClaims.get(name);
+    }
+
+    /**
+     * @return true if the token carries the user id and role, i.e. it was issued in stateless authorization mode
+     */
+    public boolean hasPrincipalClaims() {
+        return extraClaims.get(USER_ID) instanceof String && extraClaims.get(ROLE) instanceof String;
+    }
+
+    public UUID getUserId() {
+        return UUID.fromString((String) extraClaims.get(USER_ID));
+    }
+
+    public Role getRole() {
+        return Role.valueOf((String) extraClaims.get(ROLE));
+    }
+}
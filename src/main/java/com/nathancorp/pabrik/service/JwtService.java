@@ -1,6 +1,11 @@
 package com.nathancorp.pabrik.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nathancorp.pabrik.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -9,6 +14,12 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -19,11 +30,33 @@ public class JwtService {
 
     private static final long ONE_HOUR = 1000 * 60 * 60;
 
-    @Value("${PABRIK_SECRET_KEY}")
-    private String secretKey;
+    private final SecretKey signInKey;
+
+    // JwtParser is immutable and thread-safe once built, so one instance serves every request
+    private final JwtParser jwtParser;
+
+    // SHA-256 digest of already verified tokens, expiring together with the token itself
+    private final Cache<String, JwtClaims> verifiedTokens;
+
+    // when enabled, tokens carry user id and role so requests can be authorized without loading the user
+    private final boolean statelessAuthorization;
+
+    public JwtService(@Value("${PABRIK_SECRET_KEY}") String secretKey,
+                      @Value("${pabrik.jwt.verified-token-cache.max-size:10000}") long verifiedTokenCacheSize,
+                      @Value("${pabrik.jwt.stateless-authorization:false}") boolean statelessAuthorization) {
+        this.statelessAuthorization = statelessAuthorization;
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.jwtParser = Jwts.parser()
+                .verifyWith(signInKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedTokenCacheSize)
+                .expireAfter(new TokenExpiry())
+                .build();
+    }
 
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verifyToken(token).getSubject();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -36,41 +69,81 @@ public class JwtService {
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        if (statelessAuthorization && userDetails instanceof User user) {
+            claims.put(JwtClaims.USER_ID, user.getId().toString());
+            claims.put(JwtClaims.ROLE, user.getRole().name());
+        }
         return Jwts
                 .builder()
                 .subject(userDetails.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + ONE_HOUR))
-                .claims(extraClaims)
-                .signWith(getSignInKey(), Jwts.SIG.HS256)
+                .claims(claims)
+                .signWith(signInKey, Jwts.SIG.HS256)
                 .compact();
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    /**
+     * Verifies the token signature and expiry exactly once and returns its claims.
+     * Tokens that were verified before are answered from the cache without any signature work.
+     *
+     * @param token compact JWS as sent in the Authorization header
+     * @return verified claims of the token
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, tampered or expired
+     */
+    public JwtClaims verifyToken(String token) {
+        String digest = digest(token);
+        JwtClaims claims = verifiedTokens.getIfPresent(digest);
+        if (claims == null || claims.isExpired()) {
+            claims = JwtClaims.from(extractAllClaims(token));
+            verifiedTokens.put(digest, claims);
+        }
+        return claims;
+    }
+
+    public boolean isStatelessAuthorization() {
+        return statelessAuthorization;
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public boolean isTokenValid(String token, UserDetails userDetails) {
+        return isTokenValid(verifyToken(token), userDetails);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean isTokenValid(JwtClaims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.isExpired();
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .verifyWith(getSignInKey())
-                .build()
+        return jwtParser
                 .parseSignedClaims(token)
                 .getPayload();
+    }
 
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static class TokenExpiry implements Expiry<String, JwtClaims> {
+
+        @Override
+        public long expireAfterCreate(String key, JwtClaims claims, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), claims.getExpiration()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, JwtClaims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, JwtClaims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -0,0 +1,59 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.exception.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in a listing ordered by (timestamp, id) descending, e.g. paddies by purchase date.
+ * Clients get it as an opaque base64url token and must not build it themselves.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // ordering timestamp of the last row of the previous page
+    private final LocalDateTime timestamp;
+
+    // id of the last row of the previous page, breaks ties between equal timestamps
+    private final UUID id;
+
+    public String encode() {
+        String position = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor token returned as nextCursor, null or blank for the first page
+     * @return decoded position, null for the first page
+     * @throws InvalidCursorException if the token was not issued by {@link #encode()}
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length != 2) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            return new KeysetCursor(LocalDateTime.parse(position[0]), UUID.fromString(position[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+
+    public static void validatePageSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new InvalidCursorException("Invalid size, should be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+}
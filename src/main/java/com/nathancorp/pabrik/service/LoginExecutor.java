@@ -0,0 +1,70 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.exception.LoginCapacityExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated bounded pool for password hashing and verification (BCrypt), so a burst of logins
+ * cannot tie up the request threads. When both the pool and its queue are full the work is
+ * rejected right away with a {@link LoginCapacityExceededException} (503).
+ */
+@Component
+public class LoginExecutor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+
+    private final MeterRegistry meterRegistry;
+
+    public LoginExecutor(MeterRegistry meterRegistry,
+                         @Value("${pabrik.login.threads:4}") int threads,
+                         @Value("${pabrik.login.queue-capacity:64}") int queueCapacity) {
+        this.meterRegistry = meterRegistry;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("login-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        // exposes executor.queued, executor.active, executor.completed, ... tagged with name=login
+        new ExecutorServiceMetrics(executor, "login", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Runs the work on the login pool and records its latency under pabrik.login.duration.
+     *
+     * @param operation name of the operation, used as metric tag
+     * @param work      work doing the password hashing or verification
+     * @return future completed with the result of the work
+     * @throws LoginCapacityExceededException if the pool and its queue are saturated
+     */
+    public <T> CompletableFuture<T> submit(String operation, Supplier<T> work) {
+        Timer timer = meterRegistry.timer("pabrik.login.duration", "operation", operation);
+        try {
+            return CompletableFuture.supplyAsync(() -> timer.record(work), executor);
+        } catch (RejectedExecutionException e) {
+            logger.error("Failed to {}, login executor is saturated ({} queued)", operation, executor.getQueue().size());
+            throw new LoginCapacityExceededException("Too many concurrent logins, please retry shortly");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
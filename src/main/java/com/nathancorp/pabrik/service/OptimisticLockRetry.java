@@ -0,0 +1,72 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.exception.OptimisticLockConflictException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs work in a fresh transaction and retries it when it fails on an optimistic lock (@Version),
+ * sleeping a jittered exponential backoff between attempts. Once the attempts are used up an
+ * {@link OptimisticLockConflictException} (409) is thrown.
+ * Must be called outside of a transaction, otherwise the retry would join the failed one.
+ */
+@Component
+public class OptimisticLockRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticLockRetry.class);
+
+    private final TransactionOperations transactionOperations;
+
+    private final int maxAttempts;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    public OptimisticLockRetry(TransactionOperations transactionOperations,
+                               @Value("${pabrik.optimistic-lock.max-attempts:3}") int maxAttempts,
+                               @Value("${pabrik.optimistic-lock.initial-backoff:20ms}") Duration initialBackoff,
+                               @Value("${pabrik.optimistic-lock.max-backoff:200ms}") Duration maxBackoff) {
+        this.transactionOperations = transactionOperations;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    public <T> T executeInTransaction(String operation, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionOperations.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    logger.error("Failed to {}, still conflicting after {} attempts", operation, attempt);
+                    throw new OptimisticLockConflictException("Concurrent modification, failed to " + operation);
+                }
+                logger.info("Optimistic lock conflict on {}, retrying (attempt {} of {})", operation, attempt, maxAttempts);
+                backoff(operation, attempt);
+            }
+        }
+    }
+
+    // full jitter: uniformly random between 0 and the capped exponential backoff
+    private void backoff(String operation, int attempt) {
+        long cap = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        if (cap <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OptimisticLockConflictException("Interrupted while retrying " + operation);
+        }
+    }
+}
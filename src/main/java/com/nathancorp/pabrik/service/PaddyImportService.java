@@ -0,0 +1,234 @@
+package com.nathancorp.pabrik.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathancorp.pabrik.dto.request.CreatePaddyRequest;
+import com.nathancorp.pabrik.dto.request.PaddyImportFormat;
+import com.nathancorp.pabrik.dto.response.PaddyImportResponse;
+import com.nathancorp.pabrik.dto.response.RejectedLine;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.StampedTable;
+import com.nathancorp.pabrik.repository.PaddyRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Imports paddy purchases from weighbridge exports. The file is read line by line and the paddies
+ * are inserted in JDBC batches of pabrik.paddy.import.chunk-size, each chunk in its own transaction
+ * with the persistence context cleared afterward, so memory stays flat whatever the file size.
+ * Chunks committed before a database failure stay imported.
+ */
+@Service
+public class PaddyImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaddyImportService.class);
+
+    private static final String[] CSV_COLUMNS = {"quantity", "price", "supplier"};
+
+    private final PaddyService paddyService;
+
+    private final PaddyRepository paddyRepository;
+
+    private final InventoryService inventoryService;
+
+    private final ChangeStampService changeStampService;
+
+    private final AvailablePaddyIndex availablePaddyIndex;
+
+    private final EntityManager entityManager;
+
+    private final TransactionOperations transactionOperations;
+
+    private final ObjectMapper objectMapper;
+
+    private final int chunkSize;
+
+    private final int maxRejectedLines;
+
+    public PaddyImportService(PaddyService paddyService,
+                              PaddyRepository paddyRepository,
+                              InventoryService inventoryService,
+                              ChangeStampService changeStampService,
+                              AvailablePaddyIndex availablePaddyIndex,
+                              EntityManager entityManager,
+                              TransactionOperations transactionOperations,
+                              ObjectMapper objectMapper,
+                              @Value("${pabrik.paddy.import.chunk-size:500}") int chunkSize,
+                              @Value("${pabrik.paddy.import.max-rejected-lines:1000}") int maxRejectedLines) {
+        this.paddyService = paddyService;
+        this.paddyRepository = paddyRepository;
+        this.inventoryService = inventoryService;
+        this.changeStampService = changeStampService;
+        this.availablePaddyIndex = availablePaddyIndex;
+        this.entityManager = entityManager;
+        this.transactionOperations = transactionOperations;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxRejectedLines = maxRejectedLines;
+    }
+
+    /**
+     * Validates every line like {@link PaddyService#createPaddy(Double, Double, String)} and inserts the valid ones
+     *
+     * @param input  CSV or NDJSON content, read incrementally
+     * @param format format of the content
+     * @return number of imported and rejected lines, with the first rejected lines and their error
+     */
+    public PaddyImportResponse importPaddies(InputStream input, PaddyImportFormat format) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<Paddy> chunk = new ArrayList<>(chunkSize);
+        List<RejectedLine> rejectedLines = new ArrayList<>();
+        long imported = 0;
+        long rejected = 0;
+        int[] columns = {0, 1, 2};
+
+        try {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == PaddyImportFormat.CSV && lineNumber == 1 && isCsvHeader(line)) {
+                    columns = toCsvColumns(line);
+                    continue;
+                }
+
+                try {
+                    CreatePaddyRequest request = format == PaddyImportFormat.CSV
+                            ? parseCsvLine(line, columns)
+                            : parseJsonLine(line);
+                    chunk.add(paddyService.newPaddy(request.getQuantity(), request.getPrice(), request.getSupplier()));
+                } catch (IllegalArgumentException | DataIntegrityViolationException e) {
+                    rejected++;
+                    if (rejectedLines.size() < maxRejectedLines) {
+                        rejectedLines.add(new RejectedLine(lineNumber, e.getMessage()));
+                    }
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    imported += saveChunk(chunk);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to import Paddies, could not read line: {}", e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+        imported += saveChunk(chunk);
+
+        logger.info("{} Paddies are imported, {} lines are rejected", imported, rejected);
+        return PaddyImportResponse.builder()
+                .imported(imported)
+                .rejected(rejected)
+                .rejectedLines(rejectedLines)
+                .rejectedLinesTruncated(rejected > rejectedLines.size())
+                .build();
+    }
+
+    private int saveChunk(List<Paddy> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        transactionOperations.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(chunkSize);
+            paddyRepository.saveAll(chunk);
+            chunk.forEach(paddy -> inventoryService.record(paddy.getStorage(), 1, paddy.getRemainingQuantity()));
+            availablePaddyIndex.added(chunk);
+            changeStampService.touch(StampedTable.PADDY);
+            entityManager.flush();
+            entityManager.clear();
+        });
+        int saved = chunk.size();
+        chunk.clear();
+        return saved;
+    }
+
+    private CreatePaddyRequest parseJsonLine(String line) {
+        try {
+            return objectMapper.readValue(line, CreatePaddyRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static CreatePaddyRequest parseCsvLine(String line, int[] columns) {
+        List<String> values = splitCsvLine(line);
+        try {
+            return CreatePaddyRequest.builder()
+                    .quantity(Double.valueOf(csvValue(values, columns[0], "quantity")))
+                    .price(Double.valueOf(csvValue(values, columns[1], "price")))
+                    .supplier(columns[2] < values.size() ? values.get(columns[2]).trim() : null)
+                    .build();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + e.getMessage());
+        }
+    }
+
+    private static String csvValue(List<String> values, int column, String name) {
+        if (column >= values.size() || values.get(column).isBlank()) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return values.get(column).trim();
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.toLowerCase(Locale.ROOT).contains(CSV_COLUMNS[0]);
+    }
+
+    // positions of quantity, price and supplier as named by the header row
+    private static int[] toCsvColumns(String header) {
+        List<String> names = splitCsvLine(header);
+        int[] columns = new int[CSV_COLUMNS.length];
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            columns[i] = Integer.MAX_VALUE;
+            for (int j = 0; j < names.size(); j++) {
+                if (names.get(j).trim().equalsIgnoreCase(CSV_COLUMNS[i])) {
+                    columns[i] = j;
+                }
+            }
+        }
+        return columns;
+    }
+
+    // splits on commas outside of double quotes, "" inside quotes is an escaped quote
+    private static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
@@ -1,24 +1,38 @@
 package com.nathancorp.pabrik.service;
 
+import com.nathancorp.pabrik.dto.request.PaddySearchRequest;
+import com.nathancorp.pabrik.dto.response.CursorPage;
+import com.nathancorp.pabrik.dto.response.PaddyResponse;
 import com.nathancorp.pabrik.exception.InvalidPriceException;
 import com.nathancorp.pabrik.exception.InvalidQuantityException;
+import com.nathancorp.pabrik.exception.OptimisticLockConflictException;
 import com.nathancorp.pabrik.exception.PaddyNotAvailableForProcessingException;
-import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.exception.UnsupportedSearchFilterException;
 import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.StampedTable;
 import com.nathancorp.pabrik.model.Storage;
 import com.nathancorp.pabrik.repository.PaddyRepository;
+import com.nathancorp.pabrik.repository.PaddySpecifications;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -28,49 +42,133 @@ public class PaddyService {
 
     private final PaddyRepository paddyRepository;
 
+    private final InventoryService inventoryService;
+
+    private final DetailCache<PaddyResponse> paddyCache;
+
+    private final ChangeStampService changeStampService;
+
+    private final CostingService costingService;
+
+    private final OptimisticLockRetry optimisticLockRetry;
+
+    private final AvailablePaddyIndex availablePaddyIndex;
+
+    @Transactional
     public Paddy createPaddy(Double quantity, Double price, String supplier) {
-        if (quantity <= 0) {
+        Paddy rp = paddyRepository.save(newPaddy(quantity, price, supplier));
+        inventoryService.record(rp.getStorage(), 1, rp.getRemainingQuantity());
+        availablePaddyIndex.added(List.of(rp));
+        changeStampService.touch(StampedTable.PADDY);
+        logger.info(String.format("Paddy %s is created", rp.getId().toString()));
+        return rp;
+    }
+
+    /**
+     * Validates quantity and price and builds a new, not yet persisted paddy in the intake storage
+     *
+     * @throws InvalidQuantityException if the quantity is missing or not greater than 0
+     * @throws InvalidPriceException    if the price is missing or not greater than 0
+     */
+    Paddy newPaddy(Double quantity, Double price, String supplier) {
+        if (quantity == null || quantity <= 0) {
             logger.error("Failed to create Paddy, invalid quantity, should be greater than 0");
             throw new InvalidQuantityException("Invalid quantity, should be greater than 0");
         }
 
-        if (price <= 0) {
+        if (price == null || price <= 0) {
             logger.error("Failed to create Paddy, invalid price, should be greater than 0");
             throw new InvalidPriceException("Invalid price, should be greater than 0");
         }
 
-        Paddy rp = Paddy.builder()
+        return Paddy.builder()
                 .price(price)
                 .quantity(quantity)
                 .supplier(supplier)
                 .storage(Storage.STORAGE_1)
                 .purchaseDate(LocalDateTime.now())
                 .processedQuantity(0)
+                .remainingQuantity(quantity)
 //                .batches(List.of())
                 .build();
-
-        rp = paddyRepository.save(rp);
-        logger.info(String.format("Paddy %s is created", rp.getId().toString()));
-        return rp;
     }
 
+    @Transactional
     public void deletePaddy(UUID id) {
-        if (paddyRepository.existsById(id)) {
-            paddyRepository.deleteById(id);
-            logger.info("Paddy {} is deleted", id);
-        } else {
+        Paddy paddy = paddyRepository.findById(id).orElseThrow(() -> {
             logger.info("Failed to delete Paddy {} , not found", id);
-            throw new EntityNotFoundException("Paddy with ID " + id + " not found");
-        }
+            return new EntityNotFoundException("Paddy with ID " + id + " not found");
+        });
+        paddyRepository.delete(paddy);
+        paddyCache.invalidate(id);
+        inventoryService.record(paddy.getStorage(), -1, -paddy.getRemainingQuantity());
+        availablePaddyIndex.removed(id);
+        changeStampService.touch(StampedTable.PADDY);
+        logger.info("Paddy {} is deleted", id);
     }
 
-    public Paddy getPaddyById(String id) {
-        return paddyRepository.findById(UUID.fromString(id)).orElseThrow(() -> {
-            logger.error("Paddy with ID {} not found", id);
-            return new EntityNotFoundException("Paddy not found with id " + id);
+    /**
+     * Corrects the purchase price of a paddy and recosts the batches and rice made from it,
+     * in one transaction retried on optimistic lock conflicts
+     *
+     * @param id              id of the paddy
+     * @param price           corrected price
+     * @param expectedVersion version the client last read, null to skip the check
+     * @return updated Paddy entity
+     * @throws InvalidPriceException           if the price is missing or not greater than 0
+     * @throws EntityNotFoundException         if there is no paddy with the id
+     * @throws OptimisticLockConflictException if the paddy was modified since expectedVersion
+     */
+    public Paddy updatePaddyPrice(String id, Double price, Long expectedVersion) {
+        if (price == null || price <= 0) {
+            logger.error("Failed to update Paddy price, invalid price, should be greater than 0");
+            throw new InvalidPriceException("Invalid price, should be greater than 0");
+        }
+        return optimisticLockRetry.executeInTransaction("update Paddy price", () -> {
+            Paddy paddy = paddyRepository.findById(UUID.fromString(id)).orElseThrow(
+                    () -> new EntityNotFoundException("Paddy not found with id " + id));
+
+            if (expectedVersion != null && !expectedVersion.equals(paddy.getVersion())) {
+                logger.error("Failed to update Paddy {}, version {} is stale, current version is {}",
+                        id, expectedVersion, paddy.getVersion());
+                throw new OptimisticLockConflictException("Paddy was modified concurrently, current version is " + paddy.getVersion());
+            }
+
+            paddy.setPrice(price);
+            // flushed first, so batches consuming the paddy from now on wait for the row lock and see the new price
+            paddy = paddyRepository.saveAndFlush(paddy);
+            paddyCache.invalidate(paddy.getId());
+            changeStampService.touch(StampedTable.PADDY);
+            int recosted = costingService.recostBatchesOfPaddy(paddy.getId());
+
+            logger.info("Paddy {} price is corrected to {}, {} Batches are recosted", id, price, recosted);
+            return paddy;
         });
     }
 
+    /**
+     * Reads the paddy through the paddy detail cache
+     *
+     * @throws EntityNotFoundException if there is no paddy with the id
+     */
+    public PaddyResponse getPaddyById(String id) {
+        return paddyCache.get(UUID.fromString(id), paddyId -> PaddyResponse.from(
+                paddyRepository.findById(paddyId).orElseThrow(() -> {
+                    logger.error("Paddy with ID {} not found", id);
+                    return new EntityNotFoundException("Paddy not found with id " + id);
+                })));
+    }
+
+    /**
+     * Reads only the version of the paddy, enough to answer a conditional GET
+     *
+     * @throws EntityNotFoundException if there is no paddy with the id
+     */
+    public Long getPaddyVersion(String id) {
+        return paddyRepository.findVersionById(UUID.fromString(id))
+                .orElseThrow(() -> new EntityNotFoundException("Paddy not found with id " + id));
+    }
+
     public Page<Paddy> getAllAvailablePaddies(Pageable pageable) {
         return paddyRepository.findAvailablePaddies(pageable);
     }
@@ -79,24 +177,117 @@ public class PaddyService {
         return paddyRepository.findAll(pageable);
     }
 
-    public Paddy getAvailablePaddyByIdForBatch(String id, Double quantity) {
-        return paddyRepository.findById(UUID.fromString(id)).stream()
-                .filter(paddy -> paddy.getQuantity() >= paddy.getProcessedQuantity() + quantity)
-                .findFirst().orElseThrow(() -> {
-                    logger.error("Paddy with ID {} not found / not available for processing", id);
-                    return new PaddyNotAvailableForProcessingException("Paddy not found / not available for processing with id " + id);
-                });
+    /**
+     * Lists paddies matching every filter that is set, see {@link PaddySpecifications#INDEXED_FILTERS}
+     *
+     * @param filter   supplier, purchase date range, price band and storage, null fields are ignored
+     * @param pageable page and sort
+     * @return page of matching paddies
+     * @throws UnsupportedSearchFilterException if the combination of filters is not backed by an index
+     */
+    public Page<Paddy> searchPaddies(PaddySearchRequest filter, Pageable pageable) {
+        return paddyRepository.findAll(PaddySpecifications.matching(filter), pageable);
     }
 
-    public void updatePaddiesProcessedQuantity(Map<String, Double> paddyAndQuantity, Batch batch) {
-        paddyAndQuantity.forEach((paddyId, quantity) -> {
-            paddyRepository.findById(UUID.fromString(paddyId)).ifPresent(paddy -> {
-                paddy.setProcessedQuantity(paddy.getProcessedQuantity() + quantity);
-//                paddy.setBatches(batch);
-                paddyRepository.save(paddy);
-                logger.info("Updated processed quantity for Paddy with ID: {} to {}", paddyId, paddy.getProcessedQuantity());
-            });
+    /**
+     * Lists paddies newest first by seeking past the cursor instead of an offset, without a count query
+     *
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param size   page size
+     * @return page of paddies with the cursor of the next page
+     */
+    public CursorPage<PaddyResponse> getPaddiesAfter(String cursor, int size) {
+        KeysetCursor.validatePageSize(size);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        Limit limit = Limit.of(size + 1);
+        List<Paddy> paddies = position == null
+                ? paddyRepository.findFirstKeysetPage(limit)
+                : paddyRepository.findKeysetPageAfter(position.getTimestamp(), position.getId(), limit);
+
+        return CursorPage.of(paddies.stream().map(PaddyResponse::from).toList(), size,
+                paddy -> new KeysetCursor(paddy.getPurchaseDate(), paddy.getId()).encode());
+    }
+
+    /**
+     * Loads all paddies of a batch with a single query and checks in memory that each one
+     * still has enough unprocessed quantity. This only fails fast, the guarded update in
+     * {@link #updatePaddiesProcessedQuantity(Map)} has the final say.
+     *
+     * @param paddyAndQuantity Map<String, Double> paddyId and quantity to be processed
+     * @return paddies in the order of the given map
+     */
+    public List<Paddy> getAvailablePaddiesForBatch(Map<String, Double> paddyAndQuantity) {
+        Map<UUID, Double> quantities = toPaddyQuantities(paddyAndQuantity);
+        Map<UUID, Paddy> paddies = getPaddiesByIds(quantities.keySet());
+
+        List<Paddy> availablePaddies = new ArrayList<>(quantities.size());
+        quantities.forEach((id, quantity) -> {
+            Paddy paddy = paddies.get(id);
+            if (paddy == null || paddy.getQuantity() + Paddy.USED_UP_BELOW < paddy.getProcessedQuantity() + quantity) {
+                logger.error("Paddy with ID {} not found / not available for processing", id);
+                throw new PaddyNotAvailableForProcessingException("Paddy not found / not available for processing with id " + id);
+            }
+            availablePaddies.add(paddy);
         });
+        return availablePaddies;
+    }
+
+    /**
+     * Loads the paddies with a single IN query
+     *
+     * @param ids paddy ids
+     * @return found paddies by id, missing ids are absent
+     */
+    public Map<UUID, Paddy> getPaddiesByIds(Collection<UUID> ids) {
+        return paddyRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Paddy::getId, Function.identity()));
+    }
+
+    /**
+     * Reads the committed prices of the paddies, bypassing the persistence context. Called after
+     * {@link #updatePaddiesProcessedQuantity(Map)} has locked them, so no price correction can slip in between.
+     *
+     * @param ids paddy ids
+     * @return price by paddy id
+     */
+    public Map<UUID, Double> getPaddyPrices(Collection<UUID> ids) {
+        Map<UUID, Double> prices = new HashMap<>();
+        paddyRepository.findPricesByIdIn(ids).forEach(paddy -> prices.put(paddy.getId(), paddy.getPrice()));
+        return prices;
+    }
+
+    /**
+     * Adds the processed quantity to the paddies with a guarded update, so concurrent batches can
+     * never overcommit a paddy or lose an update. Must run inside the caller's transaction so a
+     * failed paddy rolls back the whole batch.
+     *
+     * @param paddyAndQuantity Map<String, Double> paddyId and processed quantity
+     * @throws PaddyNotAvailableForProcessingException if a paddy no longer has enough quantity
+     */
+    public void updatePaddiesProcessedQuantity(Map<String, Double> paddyAndQuantity) {
+        Map<UUID, Double> quantities = toPaddyQuantities(paddyAndQuantity);
+        int[] updatedRows = paddyRepository.incrementProcessedQuantities(quantities);
+
+        int i = 0;
+        for (Map.Entry<UUID, Double> entry : quantities.entrySet()) {
+            if (updatedRows[i++] == 0) {
+                logger.error("Failed to update processed quantity, Paddy with ID {} is not available for {}", entry.getKey(), entry.getValue());
+                throw new PaddyNotAvailableForProcessingException("Paddy not available for processing with id " + entry.getKey());
+            }
+            logger.info("Added processed quantity {} to Paddy with ID: {}", entry.getValue(), entry.getKey());
+        }
+        paddyCache.invalidateAll(quantities.keySet());
+        availablePaddyIndex.consumed(quantities);
+        changeStampService.touch(StampedTable.PADDY);
+        // paddies never leave the intake storage, processing only lowers their remaining quantity
+        inventoryService.record(Storage.STORAGE_1, 0,
+                -quantities.values().stream().mapToDouble(Double::doubleValue).sum());
+    }
+
+    static Map<UUID, Double> toPaddyQuantities(Map<String, Double> paddyAndQuantity) {
+        Map<UUID, Double> quantities = new LinkedHashMap<>();
+        paddyAndQuantity.forEach((paddyId, quantity) -> quantities.merge(UUID.fromString(paddyId), quantity, Double::sum));
+        return quantities;
     }
 
 }
@@ -0,0 +1,33 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.exception.InvalidDateRangeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Checks the inclusive day range of a report, so a single request cannot read years of rows
+ */
+final class ReportRange {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportRange.class);
+
+    private ReportRange() {
+    }
+
+    /**
+     * @throws InvalidDateRangeException if a day is missing, the range is reversed or longer than maxDays
+     */
+    static void validate(LocalDate from, LocalDate to, int maxDays) {
+        if (from == null || to == null || from.isAfter(to)) {
+            logger.error("Failed to report, invalid range {} to {}", from, to);
+            throw new InvalidDateRangeException("Invalid date range, from should not be after to");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            logger.error("Failed to report, range {} to {} exceeds {} days", from, to, maxDays);
+            throw new InvalidDateRangeException("At most " + maxDays + " days can be reported at once");
+        }
+    }
+}
@@ -1,18 +1,26 @@
 package com.nathancorp.pabrik.service;
 
+import com.nathancorp.pabrik.dto.request.RiceSearchRequest;
+import com.nathancorp.pabrik.dto.response.CursorPage;
+import com.nathancorp.pabrik.dto.response.RiceResponse;
 import com.nathancorp.pabrik.exception.InvalidQuantityException;
+import com.nathancorp.pabrik.exception.UnsupportedSearchFilterException;
 import com.nathancorp.pabrik.model.Batch;
 import com.nathancorp.pabrik.model.Rice;
 import com.nathancorp.pabrik.model.RiceType;
+import com.nathancorp.pabrik.model.StampedTable;
 import com.nathancorp.pabrik.model.Storage;
 import com.nathancorp.pabrik.repository.RiceRepository;
+import com.nathancorp.pabrik.repository.RiceSpecifications;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -26,6 +34,13 @@ public class RiceService {
 
     private final RiceRepository repository;
 
+    private final InventoryService inventoryService;
+
+    private final DetailCache<RiceResponse> riceCache;
+
+    private final ChangeStampService changeStampService;
+
+    @Transactional
     public Rice createRice(Batch batch) {
         if (batch == null) {
             LOGGER.info("Failed to create Rice, batch must not be null");
@@ -35,15 +50,19 @@ public class RiceService {
         Rice pr = Rice.builder()
                 .batch(batch)
                 .quantity(batch.getProducedQuantity())
+                .costPerKg(batch.getCostPerKg())
                 .productionDate(LocalDateTime.now())
                 .storage(Storage.STORAGE_3)
                 .build();
 
         pr = repository.save(pr);
+        inventoryService.record(pr.getStorage(), 1, pr.getQuantity());
+        changeStampService.touch(StampedTable.RICE);
         LOGGER.info(String.format("Rice %s is created", pr.getId().toString()));
         return pr;
     }
 
+    @Transactional
     public Rice createRice(Double quantity) {
         if (quantity <= 0) {
             LOGGER.info("Failed to create Rice, quantity must be greater than 0");
@@ -59,26 +78,76 @@ public class RiceService {
                 .build();
 
         r = repository.save(r);
+        inventoryService.record(r.getStorage(), 1, r.getQuantity());
+        changeStampService.touch(StampedTable.RICE);
         LOGGER.info(String.format("Rice %s is created", r.getId().toString()));
         return r;
     }
 
+    @Transactional
     public void deleteRiceById(String id) {
-        if (repository.existsById(UUID.fromString(id))) {
-            repository.deleteById(UUID.fromString(id));
-            LOGGER.info(String.format("Rice %s is deleted", id));
-        } else {
+        Rice rice = repository.findById(UUID.fromString(id)).orElseThrow(() -> {
             LOGGER.info(String.format("Failed to delete Rice %s , not found", id));
-            throw new EntityNotFoundException("Rice with ID " + id + " not found");
-        }
+            return new EntityNotFoundException("Rice with ID " + id + " not found");
+        });
+        repository.delete(rice);
+        riceCache.invalidate(rice.getId());
+        inventoryService.record(rice.getStorage(), -1, -rice.getQuantity());
+        changeStampService.touch(StampedTable.RICE);
+        LOGGER.info(String.format("Rice %s is deleted", id));
+    }
+
+    /**
+     * Reads only the version of the rice, enough to answer a conditional GET
+     *
+     * @throws EntityNotFoundException if there is no rice with the id
+     */
+    public Long getRiceVersion(String id) {
+        return repository.findVersionById(UUID.fromString(id))
+                .orElseThrow(() -> new EntityNotFoundException("Rice with ID " + id + " not found"));
     }
 
-    public Page<Rice> getAllRice(Pageable pageable) {
-        return repository.findAll(pageable);
+    public Page<RiceResponse> getAllRice(Pageable pageable) {
+        return repository.findAllRice(pageable);
+    }
+
+    /**
+     * Lists rice matching every filter that is set, see {@link RiceSpecifications#INDEXED_FILTERS}
+     *
+     * @param filter   storage, production date range and batch, null fields are ignored
+     * @param pageable page and sort
+     * @return page of matching rice
+     * @throws UnsupportedSearchFilterException if the combination of filters is not backed by an index
+     */
+    public Page<RiceResponse> searchRice(RiceSearchRequest filter, Pageable pageable) {
+        return repository.findAll(RiceSpecifications.matching(filter), pageable).map(RiceResponse::from);
+    }
+
+    /**
+     * Lists rice newest first by seeking past the cursor instead of an offset, without a count query
+     *
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param size   page size
+     * @return page of rice with the cursor of the next page
+     */
+    public CursorPage<RiceResponse> getRiceAfter(String cursor, int size) {
+        KeysetCursor.validatePageSize(size);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        Limit limit = Limit.of(size + 1);
+        List<RiceResponse> rice = position == null
+                ? repository.findFirstKeysetPage(limit)
+                : repository.findKeysetPageAfter(position.getTimestamp(), position.getId(), limit);
+
+        return CursorPage.of(rice, size, r -> new KeysetCursor(r.getProductionDate(), r.getId()).encode());
     }
 
-    public Rice getRiceById(String id) {
-        return repository.findById(UUID.fromString(id)).orElseThrow(()
-                -> new EntityNotFoundException("Rice with ID " + id + " not found"));
+    /**
+     * Reads the rice through the rice detail cache
+     *
+     * @throws EntityNotFoundException if there is no rice with the id
+     */
+    public RiceResponse getRiceById(String id) {
+        return riceCache.get(UUID.fromString(id), riceId -> RiceResponse.from(repository.findById(riceId).orElseThrow(()
+                -> new EntityNotFoundException("Rice with ID " + id + " not found"))));
     }
 }
@@ -0,0 +1,74 @@
+package com.nathancorp.pabrik.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nathancorp.pabrik.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded TTL cache of {@link User} principals keyed by email, sitting in front of
+ * {@link com.nathancorp.pabrik.repository.UserRepository#findByEmail(String)}.
+ * Anything that changes a user (register, role or password change) must call {@link #invalidate(String)}.
+ * Misses are loaded outside the cache, so the lookup does not pin a virtual thread while it waits on the database.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserPrincipalCache.class);
+
+    private static final String CACHE_NAME = "userPrincipals";
+
+    private final Cache<String, User> users;
+
+    // bumped by every eviction, a load that overlapped one is not left in the cache
+    private final AtomicLong evictions = new AtomicLong();
+
+    public UserPrincipalCache(MeterRegistry meterRegistry,
+                              @Value("${pabrik.user-cache.max-size:10000}") long maxSize,
+                              @Value("${pabrik.user-cache.ttl:5m}") Duration ttl) {
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached user for the email, loading it with the given loader on a miss.
+     * Loader exceptions (e.g. user not found) are propagated and nothing is cached.
+     */
+    public User get(String email, Function<String, User> loader) {
+        User cached = users.getIfPresent(email);
+        if (cached != null) {
+            return cached;
+        }
+        long evictionsBeforeLoad = evictions.get();
+        User loaded = loader.apply(email);
+        users.put(email, loaded);
+        if (evictions.get() != evictionsBeforeLoad) {
+            users.invalidate(email);
+        }
+        return loaded;
+    }
+
+    public void invalidate(String email) {
+        evictions.incrementAndGet();
+        users.invalidate(email);
+        logger.info("User principal {} is evicted from cache", email);
+    }
+
+    public void invalidateAll() {
+        evictions.incrementAndGet();
+        users.invalidateAll();
+    }
+}
@@ -0,0 +1,136 @@
+package com.nathancorp.pabrik.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-principal token buckets for the write endpoints, one bucket per principal and route group.
+ * A bucket holds burst tokens and refills at the group's rate. It is kept as the single
+ * "theoretical arrival time" of the generic cell rate algorithm, which admits exactly what such a
+ * token bucket admits, so admitting a request is one compare-and-set on an {@link AtomicLong}
+ * and no lock is taken. Buckets idle for pabrik.rate-limit.idle-timeout are evicted; an evicted
+ * bucket comes back full, which it would have been by then anyway unless the timeout is shorter
+ * than a full refill.
+ */
+@Component
+public class WriteRateLimiter {
+
+    private static final String CACHE_NAME = "rateLimitBuckets";
+
+    private static final Set<String> WRITE_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    private final List<RouteGroup> routeGroups;
+
+    private final Cache<String, AtomicLong> buckets;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Clock clock;
+
+    @Autowired
+    public WriteRateLimiter(MeterRegistry meterRegistry,
+                            @Value("${pabrik.rate-limit.import.requests-per-minute:6}") int importPerMinute,
+                            @Value("${pabrik.rate-limit.import.burst:2}") int importBurst,
+                            @Value("${pabrik.rate-limit.paddy.requests-per-minute:120}") int paddyPerMinute,
+                            @Value("${pabrik.rate-limit.paddy.burst:20}") int paddyBurst,
+                            @Value("${pabrik.rate-limit.batch.requests-per-minute:120}") int batchPerMinute,
+                            @Value("${pabrik.rate-limit.batch.burst:20}") int batchBurst,
+                            @Value("${pabrik.rate-limit.rice.requests-per-minute:120}") int ricePerMinute,
+                            @Value("${pabrik.rate-limit.rice.burst:20}") int riceBurst,
+                            @Value("${pabrik.rate-limit.max-buckets:100000}") long maxBuckets,
+                            @Value("${pabrik.rate-limit.idle-timeout:10m}") Duration idleTimeout) {
+        // first match wins, the import route sits under the paddy route
+        this(meterRegistry, List.of(
+                RouteGroup.of("import", "/api/v1/paddy/import", importPerMinute, importBurst),
+                RouteGroup.of("paddy", "/api/v1/paddy", paddyPerMinute, paddyBurst),
+                RouteGroup.of("batch", "/api/v1/batch", batchPerMinute, batchBurst),
+                RouteGroup.of("rice", "/api/v1/rice", ricePerMinute, riceBurst)
+        ), maxBuckets, idleTimeout, Clock.systemUTC());
+    }
+
+    WriteRateLimiter(MeterRegistry meterRegistry, List<RouteGroup> routeGroups, long maxBuckets,
+                     Duration idleTimeout, Clock clock) {
+        this.meterRegistry = meterRegistry;
+        this.routeGroups = routeGroups;
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(idleTimeout)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, CACHE_NAME);
+    }
+
+    /**
+     * Takes a token from the principal's bucket of the route group the request falls into.
+     * Reads and requests outside every route group are not limited.
+     *
+     * @param principal name of the authenticated principal
+     * @param method    HTTP method of the request
+     * @param path      request path without the context path
+     * @return empty if the request is admitted, otherwise how long until the next token
+     */
+    public Optional<Duration> tryAcquire(String principal, String method, String path) {
+        if (!WRITE_METHODS.contains(method)) {
+            return Optional.empty();
+        }
+        Optional<RouteGroup> routeGroup = routeGroups.stream().filter(group -> group.matches(path)).findFirst();
+        if (routeGroup.isEmpty()) {
+            return Optional.empty();
+        }
+        RouteGroup group = routeGroup.get();
+        AtomicLong bucket = buckets.get(group.name() + ':' + principal, key -> new AtomicLong(Long.MIN_VALUE));
+        long now = nanos(clock.instant());
+        while (true) {
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + group.intervalNanos();
+            long allowedAt = next - group.toleranceNanos();
+            if (allowedAt > now) {
+                meterRegistry.counter("pabrik.rate-limit.rejected", "group", group.name()).increment();
+                return Optional.of(Duration.ofNanos(allowedAt - now));
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    private static long nanos(Instant instant) {
+        return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+    }
+
+    /**
+     * Write routes under a path prefix sharing one limit
+     *
+     * @param intervalNanos  time to refill one token
+     * @param toleranceNanos time to refill the whole burst
+     */
+    record RouteGroup(String name, String pathPrefix, long intervalNanos, long toleranceNanos) {
+
+        static RouteGroup of(String name, String pathPrefix, int requestsPerMinute, int burst) {
+            if (requestsPerMinute < 1 || burst < 1) {
+                throw new IllegalArgumentException("Rate limit of " + name + " needs at least 1 request per minute and a burst of 1");
+            }
+            long interval = TimeUnit.MINUTES.toNanos(1) / requestsPerMinute;
+            return new RouteGroup(name, pathPrefix, interval, interval * burst);
+        }
+
+        boolean matches(String path) {
+            return path.equals(pathPrefix) || path.startsWith(pathPrefix + "/");
+        }
+    }
+}
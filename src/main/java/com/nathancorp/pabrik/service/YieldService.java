@@ -0,0 +1,240 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.response.YieldReportResponse;
+import com.nathancorp.pabrik.exception.InvalidDateRangeException;
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.model.BatchPaddy;
+import com.nathancorp.pabrik.model.YieldRollup;
+import com.nathancorp.pabrik.repository.YieldRollupRepository;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps one row of milling totals per processing day and supplier. Batch writers add and remove
+ * processed batches with {@link #add(Batch)} and {@link #remove(Batch)}, which are summed up per
+ * transaction and applied right before it commits, like the inventory summary. Reports are answered
+ * from these rows only. {@link #rebuild()} recomputes them from the batches to repair drift.
+ */
+@Service
+public class YieldService {
+
+    private static final Logger logger = LoggerFactory.getLogger(YieldService.class);
+
+    private static final String NO_SUPPLIER = "";
+
+    // rows in day then supplier order, so transactions touching several rows lock them in the same order
+    private static final Comparator<YieldRollup.Key> KEY_ORDER = Comparator
+            .comparing(YieldRollup.Key::getProcessingDay)
+            .thenComparing(YieldRollup.Key::getSupplier);
+
+    private final YieldRollupRepository yieldRollupRepository;
+
+    private final TransactionOperations transactionOperations;
+
+    private final int maxReportDays;
+
+    public YieldService(YieldRollupRepository yieldRollupRepository,
+                        TransactionOperations transactionOperations,
+                        @Value("${pabrik.reports.yield.max-days:366}") int maxReportDays) {
+        this.yieldRollupRepository = yieldRollupRepository;
+        this.transactionOperations = transactionOperations;
+        this.maxReportDays = maxReportDays;
+    }
+
+    /**
+     * Reads the rollup rows of the days in the range, one per day and supplier with processed batches
+     *
+     * @param from     first day of the range
+     * @param to       last day of the range, inclusive
+     * @param supplier only this supplier, null for all of them
+     * @return totals and yield in day then supplier order
+     * @throws InvalidDateRangeException if the range is reversed or longer than the configured maximum
+     */
+    public List<YieldReportResponse> getYieldReport(LocalDate from, LocalDate to, String supplier) {
+        ReportRange.validate(from, to, maxReportDays);
+        return yieldRollupRepository.findInRange(from, to, supplier).stream()
+                .map(YieldReportResponse::from)
+                .toList();
+    }
+
+    /**
+     * Adds a batch to the totals of its processing day, unprocessed batches are not counted
+     *
+     * @param batch batch with its allocations loaded, or persisted with them
+     */
+    public void add(Batch batch) {
+        record(batch, 1);
+    }
+
+    /**
+     * Removes a batch from the totals as it is now, call it before changing its status or produced quantity
+     * and {@link #add(Batch)} after
+     *
+     * @param batch batch with its allocations loaded, or persisted with them
+     */
+    public void remove(Batch batch) {
+        record(batch, -1);
+    }
+
+    private void record(Batch batch, int sign) {
+        if (!batch.isProcessed() || batch.getQuantity() <= 0) {
+            return;
+        }
+        LocalDate day = batch.getProcessingDate().toLocalDate();
+        Map<String, Double> inputBySupplier = inputBySupplier(batch);
+        double produced = batch.getProducedQuantity() == null ? 0 : batch.getProducedQuantity();
+
+        Map<YieldRollup.Key, double[]> changes = new HashMap<>();
+        inputBySupplier.forEach((supplier, input) -> changes.put(new YieldRollup.Key(day, supplier),
+                new double[]{sign, sign * input, sign * produced * input / batch.getQuantity()}));
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionOperations.executeWithoutResult(status -> apply(changes));
+            return;
+        }
+        PendingChanges pending = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(PendingChanges.class::isInstance)
+                .map(PendingChanges.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    PendingChanges created = new PendingChanges();
+                    TransactionSynchronizationManager.registerSynchronization(created);
+                    return created;
+                });
+        pending.add(changes);
+    }
+
+    // a new batch holds the paddies it was created from, a batch read back is summed by one query
+    private Map<String, Double> inputBySupplier(Batch batch) {
+        Map<String, Double> inputBySupplier = new HashMap<>();
+        if (!paddiesLoaded(batch)) {
+            yieldRollupRepository.sumBatch(batch.getId()).forEach(total ->
+                    inputBySupplier.put(total.getSupplier(), total.getInputQuantity()));
+            return inputBySupplier;
+        }
+        for (BatchPaddy allocation : batch.getPaddies()) {
+            String supplier = allocation.getPaddy().getSupplier();
+            inputBySupplier.merge(supplier == null ? NO_SUPPLIER : supplier, allocation.getQuantity(), Double::sum);
+        }
+        return inputBySupplier;
+    }
+
+    private static boolean paddiesLoaded(Batch batch) {
+        return Hibernate.isInitialized(batch.getPaddies())
+                && batch.getPaddies().stream().allMatch(allocation -> Hibernate.isInitialized(allocation.getPaddy()));
+    }
+
+    /**
+     * Recomputes every row from the processed batches and their allocations. The existing rows are
+     * locked first, so writers committing meanwhile wait and apply their change on top of the rebuilt totals.
+     *
+     * @return number of rebuilt rows
+     */
+    public int rebuild() {
+        int rebuilt = transactionOperations.execute(status -> {
+            Map<YieldRollup.Key, YieldRollup> rows = new HashMap<>();
+            yieldRollupRepository.findAllForUpdate().forEach(row ->
+                    rows.put(new YieldRollup.Key(row.getProcessingDay(), row.getSupplier()), row));
+            rows.values().forEach(row -> {
+                row.setBatchCount(0);
+                row.setInputQuantity(0);
+                row.setProducedQuantity(0);
+            });
+
+            for (YieldReportResponse total : yieldRollupRepository.sumProcessedBatches()) {
+                YieldRollup row = rows.computeIfAbsent(new YieldRollup.Key(total.getProcessingDay(), total.getSupplier()),
+                        key -> new YieldRollup(key.getProcessingDay(), key.getSupplier(), 0, 0, 0));
+                row.setBatchCount(total.getBatchCount());
+                row.setInputQuantity(total.getInputQuantity());
+                row.setProducedQuantity(total.getProducedQuantity());
+            }
+            return yieldRollupRepository.saveAll(rows.values()).size();
+        });
+        logger.info("Yield rollup is rebuilt, {} rows", rebuilt);
+        return rebuilt;
+    }
+
+    // the first start on an existing database has no rollup yet
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeRollup() {
+        if (yieldRollupRepository.count() > 0) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Yield rollup is initialized by another instance: {}", e.getMessage());
+        }
+    }
+
+    private void apply(Map<YieldRollup.Key, double[]> changes) {
+        Map<YieldRollup.Key, double[]> ordered = new TreeMap<>(KEY_ORDER);
+        ordered.putAll(changes);
+        ordered.forEach((key, change) -> {
+            if (change[0] == 0 && change[1] == 0 && change[2] == 0) {
+                return;
+            }
+            if (addToRollup(key, change) == 0) {
+                // first batch of the supplier that day, insert the row then add on top of it
+                insertMissing(key);
+                if (addToRollup(key, change) == 0) {
+                    logger.error("Yield rollup of {} on {} is missing, rebuild it to include this change",
+                            key.getSupplier(), key.getProcessingDay());
+                }
+            }
+        });
+    }
+
+    private int addToRollup(YieldRollup.Key key, double[] change) {
+        return yieldRollupRepository.addToRollup(key.getProcessingDay(), key.getSupplier(),
+                (long) change[0], change[1], change[2]);
+    }
+
+    // in the writer's transaction, an insert that loses the race to another writer does nothing instead of failing
+    private void insertMissing(YieldRollup.Key key) {
+        if (yieldRollupRepository.insertIfAbsent(key.getProcessingDay(), key.getSupplier()) == 0) {
+            logger.info("Yield rollup of {} on {} is inserted concurrently", key.getSupplier(), key.getProcessingDay());
+        }
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final Map<YieldRollup.Key, double[]> changes = new HashMap<>();
+
+        void add(Map<YieldRollup.Key, double[]> batchChanges) {
+            batchChanges.forEach((key, change) -> {
+                double[] pending = changes.computeIfAbsent(key, k -> new double[3]);
+                for (int i = 0; i < pending.length; i++) {
+                    pending[i] += change[i];
+                }
+            });
+        }
+
+        @Override
+        public int getOrder() {
+            return CommitOrder.YIELD_ROLLUP;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            apply(changes);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+-- Moves batch to paddy links from batch_paddy and batch_paddies_and_quantity into batch_paddy_allocation.
+-- Run once on Postgres after deploying the BatchPaddy entity, e.g. psql -d pabrik -f batch_paddy_allocation.sql
+-- Safe to run before or after hibernate ddl-auto=update has created the new table.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS batch_paddy_allocation (
+    id       uuid             NOT NULL PRIMARY KEY,
+    batch_id uuid             NOT NULL REFERENCES batch (id),
+    paddy_id uuid             NOT NULL REFERENCES paddy (id),
+    quantity double precision NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_batch_paddy_allocation_batch_id ON batch_paddy_allocation (batch_id);
+CREATE INDEX IF NOT EXISTS idx_batch_paddy_allocation_paddy_id ON batch_paddy_allocation (paddy_id);
+
+-- the quantity map is the complete record, batch_paddy only repeats its keys
+INSERT INTO batch_paddy_allocation (id, batch_id, paddy_id, quantity)
+SELECT gen_random_uuid(), q.batch_id, q.paddy::uuid, q.paddy_quantity
+FROM batch_paddies_and_quantity q
+WHERE NOT EXISTS (SELECT 1
+                  FROM batch_paddy_allocation a
+                  WHERE a.batch_id = q.batch_id
+                    AND a.paddy_id = q.paddy::uuid);
+
+DROP TABLE batch_paddies_and_quantity;
+DROP TABLE batch_paddy;
+
+COMMIT;
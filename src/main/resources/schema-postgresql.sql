@@ -0,0 +1,20 @@
+-- Runs on every start after hibernate ddl-auto (spring.jpa.defer-datasource-initialization), so keep it idempotent.
+
+-- paddies created before remaining_quantity existed
+UPDATE paddy SET remaining_quantity = quantity - processed_quantity WHERE remaining_quantity IS NULL;
+
+-- only available paddies are indexed, fully processed ones never enter it
+CREATE INDEX IF NOT EXISTS idx_paddy_available_purchase_date ON paddy (purchase_date, id) WHERE remaining_quantity > 0;
+
+-- search indexes replaced by composite ones leading with the filter and ending with the sort key,
+-- ddl-auto only adds indexes
+DROP INDEX IF EXISTS idx_paddy_supplier;
+DROP INDEX IF EXISTS idx_paddy_storage;
+DROP INDEX IF EXISTS idx_batch_is_processed;
+DROP INDEX IF EXISTS idx_batch_storage;
+DROP INDEX IF EXISTS idx_rice_storage;
+DROP INDEX IF EXISTS idx_rice_batch_id;
+
+-- rounding leftovers of consumption before the guarded update used such paddies up, see Paddy.USED_UP_BELOW
+UPDATE paddy SET processed_quantity = quantity, remaining_quantity = 0, version = version + 1
+WHERE remaining_quantity > 0 AND remaining_quantity < 0.000001;
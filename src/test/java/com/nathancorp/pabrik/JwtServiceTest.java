@@ -2,12 +2,14 @@ package com.nathancorp.pabrik;
 
 import com.nathancorp.pabrik.model.Role;
 import com.nathancorp.pabrik.model.User;
+import com.nathancorp.pabrik.service.JwtClaims;
 import com.nathancorp.pabrik.service.JwtService;
+import io.jsonwebtoken.JwtException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,9 +23,8 @@ class JwtServiceTest {
 
     @BeforeEach
     void setUp() {
-        jwtService = new JwtService();
         String secretKey = "RWl2V2iChIEyicARsgOAnIJ2R/nYqFTqaZS21BZ3Wns=";
-        ReflectionTestUtils.setField(jwtService, "secretKey", secretKey);
+        jwtService = new JwtService(secretKey, 100, false);
         testUser = new User(new UUID(1, 0), "TestName", "Lastname", "some@email.com", "password", Role.USER);
     }
 
@@ -45,5 +46,47 @@ class JwtServiceTest {
         String username = jwtService.extractUsername(token);
         assertEquals(testUser.getUsername(), username, "Extracted username should match");
     }
-}
 
+    @Test
+    void testVerifyToken() {
+        String token = jwtService.generateToken(Map.of("scope", "inventory"), testUser);
+        JwtClaims claims = jwtService.verifyToken(token);
+
+        assertEquals(testUser.getUsername(), claims.getSubject());
+        assertEquals("inventory", claims.getClaim("scope"));
+        assertFalse(claims.isExpired());
+        assertTrue(jwtService.isTokenValid(claims, testUser));
+    }
+
+    @Test
+    void testVerifyToken_ReturnsCachedClaims() {
+        String token = jwtService.generateToken(testUser);
+
+        assertSame(jwtService.verifyToken(token), jwtService.verifyToken(token));
+    }
+
+    @Test
+    void testVerifyToken_TamperedToken() {
+        String token = jwtService.generateToken(testUser);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> jwtService.verifyToken(tampered));
+    }
+
+    @Test
+    void testGenerateToken_StatelessAuthorization() {
+        JwtService statelessJwtService = new JwtService("RWl2V2iChIEyicARsgOAnIJ2R/nYqFTqaZS21BZ3Wns=", 100, true);
+        JwtClaims claims = statelessJwtService.verifyToken(statelessJwtService.generateToken(testUser));
+
+        assertTrue(claims.hasPrincipalClaims());
+        assertEquals(testUser.getId(), claims.getUserId());
+        assertEquals(Role.USER, claims.getRole());
+    }
+
+    @Test
+    void testGenerateToken_WithoutStatelessAuthorization() {
+        JwtClaims claims = jwtService.verifyToken(jwtService.generateToken(testUser));
+
+        assertFalse(claims.hasPrincipalClaims());
+    }
+}
@@ -0,0 +1,77 @@
+package com.nathancorp.pabrik.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BulkheadDataSourceTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    private BulkheadDataSource bulkhead;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(dataSource.getConnection()).thenReturn(connection);
+        bulkhead = new BulkheadDataSource(dataSource, 2, Duration.ofMillis(50));
+    }
+
+    @Test
+    void testGetConnection_BeyondCap_TimesOut() throws SQLException {
+        bulkhead.getConnection();
+        bulkhead.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, () -> bulkhead.getConnection());
+        verify(dataSource, times(2)).getConnection();
+    }
+
+    @Test
+    void testClose_ReleasesPermitOnce() throws SQLException {
+        Connection first = bulkhead.getConnection();
+        Connection second = bulkhead.getConnection();
+
+        first.close();
+        first.close();
+
+        assertEquals(1, bulkhead.getAvailablePermits());
+        verify(connection, times(2)).close();
+        second.close();
+        assertEquals(2, bulkhead.getAvailablePermits());
+    }
+
+    @Test
+    void testGetConnection_PoolFailure_ReleasesPermit() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLTransientConnectionException("pool exhausted"));
+
+        assertThrows(SQLTransientConnectionException.class, () -> bulkhead.getConnection());
+        assertEquals(2, bulkhead.getAvailablePermits());
+    }
+
+    @Test
+    void testConnection_DelegatesOtherCalls() throws SQLException {
+        when(connection.getAutoCommit()).thenReturn(false);
+        Connection wrapped = bulkhead.getConnection();
+
+        wrapped.setAutoCommit(false);
+
+        assertFalse(wrapped.getAutoCommit());
+        verify(connection).setAutoCommit(false);
+        assertEquals(wrapped, wrapped);
+        assertNotEquals(wrapped, connection);
+    }
+}
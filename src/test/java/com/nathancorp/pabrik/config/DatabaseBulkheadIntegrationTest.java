@@ -0,0 +1,33 @@
+package com.nathancorp.pabrik.config;
+
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.service.PaddyService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"spring.config.location=classpath:/test.properties", "pabrik.db-bulkhead.enabled=true"})
+class DatabaseBulkheadIntegrationTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PaddyService paddyService;
+
+    @Test
+    void testBulkhead_WrapsPoolAndReleasesEveryConnection() {
+        BulkheadDataSource bulkhead = assertInstanceOf(BulkheadDataSource.class, dataSource);
+        // Hikari's default maximum pool size
+        assertEquals(10, bulkhead.getMaxConcurrent());
+
+        Paddy paddy = paddyService.createPaddy(100.0, 20.0, "Supplier A");
+        paddyService.getPaddyById(paddy.getId().toString());
+
+        assertEquals(bulkhead.getMaxConcurrent(), bulkhead.getAvailablePermits());
+    }
+}
@@ -0,0 +1,59 @@
+package com.nathancorp.pabrik.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.net.URI;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"spring.config.location=classpath:/test.properties",
+        "pabrik.rate-limit.rice.requests-per-minute=1", "pabrik.rate-limit.rice.burst=2"})
+@AutoConfigureMockMvc
+class RateLimitIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testWritesOverLimit_Return429WithRetryAfter() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/v1/rice").with(user("limited@email.com"))
+                            .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\": 10.0}"))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(post("/api/v1/rice").with(user("limited@email.com"))
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\": 10.0}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "60"));
+        // reads and other principals keep going
+        mockMvc.perform(get("/api/v1/rice").param("page", "0").param("size", "10").with(user("limited@email.com")))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/rice").with(user("other@email.com"))
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\": 10.0}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testPercentEncodedPath_CountsAgainstTheSameLimit() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/v1/rice").with(user("encoded@email.com"))
+                            .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\": 10.0}"))
+                    .andExpect(status().isOk());
+        }
+
+        // %72 is an r, handler mapping decodes it and would route the request to the rice controller
+        mockMvc.perform(post(URI.create("/api/v1/%72ice")).with(user("encoded@email.com"))
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\": 10.0}"))
+                .andExpect(status().isTooManyRequests());
+    }
+}
@@ -1,15 +1,24 @@
 package com.nathancorp.pabrik.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathancorp.pabrik.dto.request.BulkCreateBatchRequest;
+import com.nathancorp.pabrik.dto.request.BulkMode;
 import com.nathancorp.pabrik.dto.request.CreateBatchRequest;
 import com.nathancorp.pabrik.dto.request.CreatePaddyRequest;
 import com.nathancorp.pabrik.dto.request.UpdateBatchRequest;
+import com.nathancorp.pabrik.dto.response.BatchPaddyResponse;
+import com.nathancorp.pabrik.dto.response.BatchResponse;
+import com.nathancorp.pabrik.dto.response.BulkBatchResult;
+import com.nathancorp.pabrik.dto.response.BulkCreateBatchResponse;
 import com.nathancorp.pabrik.model.Batch;
 import com.nathancorp.pabrik.model.Paddy;
 import com.nathancorp.pabrik.model.Storage;
 import com.nathancorp.pabrik.service.BatchService;
+import com.nathancorp.pabrik.service.ChangeStampService;
+import com.nathancorp.pabrik.service.ExportService;
 import com.nathancorp.pabrik.service.JwtService;
 import com.nathancorp.pabrik.service.PaddyService;
+import com.nathancorp.pabrik.service.WriteRateLimiter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,12 +53,21 @@ class BatchControllerTest {
     @MockBean
     private BatchService batchService;
 
+    @MockBean
+    private ChangeStampService changeStampService;
+
+    @MockBean
+    private ExportService exportService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @MockBean
     private JwtService jwtService;
 
+    @MockBean
+    private WriteRateLimiter writeRateLimiter;
+
     private Batch mockBatch;
 
     @BeforeEach
@@ -65,7 +83,7 @@ class BatchControllerTest {
 
     @Test
     void testGetBatch() throws Exception {
-        List<Batch> batches = List.of(new Batch(), new Batch());
+        List<BatchResponse> batches = List.of(BatchResponse.builder().build(), BatchResponse.builder().build());
         Pageable pageable = PageRequest.of(0, 5);
 
         when(batchService.getAllBatch(any())).thenReturn(new PageImpl<>(batches, pageable, batches.size()));
@@ -83,8 +101,7 @@ class BatchControllerTest {
     @Test
     void testGetBatchById() throws Exception {
         UUID id = UUID.randomUUID();
-        Batch batch = new Batch();
-        batch.setId(id);
+        BatchResponse batch = BatchResponse.builder().id(id).paddies(List.of()).build();
         when(batchService.getBatchById(id.toString())).thenReturn(batch);
 
         mockMvc.perform(get("/api/v1/batch/{id}", id.toString()))
@@ -93,9 +110,25 @@ class BatchControllerTest {
         verify(batchService, times(1)).getBatchById(id.toString());
     }
 
+    @Test
+    void testGetBatchById_ChangedVersion() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(batchService.getBatchVersion(id.toString())).thenReturn(2L);
+        when(batchService.getBatchById(id.toString()))
+                .thenReturn(BatchResponse.builder().id(id).version(2L).paddies(List.of()).build());
+
+        mockMvc.perform(get("/api/v1/batch/{id}", id.toString())
+                        .header("If-None-Match", "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("$.version").value(2));
+    }
+
     @Test
     void testCreateBatch() throws Exception {
-        Map<String, Double> paddyAndQuantity = Map.of("paddy-1", 200.0);
+        Paddy paddy = Paddy.builder().id(UUID.randomUUID()).quantity(500.0).price(20.0).purchaseDate(LocalDateTime.now()).build();
+        Map<String, Double> paddyAndQuantity = Map.of(paddy.getId().toString(), 200.0);
+        mockBatch.addPaddy(paddy, 200.0);
         when(batchService.createBatch(any(), any())).thenReturn(mockBatch);
 
         mockMvc.perform(post("/api/v1/batch")
@@ -108,7 +141,85 @@ class BatchControllerTest {
                 .andExpect(jsonPath("$.id").value(mockBatch.getId().toString()))
                 .andExpect(jsonPath("$.producedQuantity").value(mockBatch.getProducedQuantity()))
                 .andExpect(jsonPath("$.processed").value(mockBatch.isProcessed()))
-                .andExpect(jsonPath("$.paddiesAndQuantity").value(mockBatch.getPaddiesAndQuantity()));
+                .andExpect(jsonPath("$.paddies[0].paddyId").value(paddy.getId().toString()))
+                .andExpect(jsonPath("$.paddies[0].quantity").value(200.0));
+    }
+
+    @Test
+    void testCreateBatchFromOldestPaddies() throws Exception {
+        Paddy paddy = Paddy.builder().id(UUID.randomUUID()).quantity(500.0).price(20.0).purchaseDate(LocalDateTime.now()).build();
+        mockBatch.addPaddy(paddy, 300.0);
+        when(batchService.createBatchFromOldestPaddies(300.0, 250.0, "Supplier A", Storage.STORAGE_1)).thenReturn(mockBatch);
+
+        mockMvc.perform(post("/api/v1/batch/allocate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of(
+                                "inputQuantity", 300.0,
+                                "producedQuantity", 250.0,
+                                "supplier", "Supplier A",
+                                "storage", "STORAGE_1"
+                        ))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(mockBatch.getId().toString()))
+                .andExpect(jsonPath("$.paddies[0].paddyId").value(paddy.getId().toString()))
+                .andExpect(jsonPath("$.paddies[0].quantity").value(300.0));
+    }
+
+    @Test
+    void testCreateBatches() throws Exception {
+        BulkCreateBatchRequest bulkRequest = new BulkCreateBatchRequest(List.of(
+                new CreateBatchRequest(Map.of(UUID.randomUUID().toString(), 100.0), 80.0)
+        ), BulkMode.BEST_EFFORT);
+        BulkCreateBatchResponse response = BulkCreateBatchResponse.builder()
+                .mode(BulkMode.BEST_EFFORT)
+                .created(1)
+                .rejected(0)
+                .results(List.of(BulkBatchResult.builder().index(0).created(true).batchId(mockBatch.getId()).build()))
+                .build();
+
+        when(batchService.createBatches(any(), eq(BulkMode.BEST_EFFORT))).thenReturn(response);
+
+        mockMvc.perform(post("/api/v1/batch/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bulkRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.results[0].batchId").value(mockBatch.getId().toString()));
+    }
+
+    @Test
+    void testCreateBatches_AllRejected() throws Exception {
+        BulkCreateBatchRequest bulkRequest = new BulkCreateBatchRequest(List.of(
+                new CreateBatchRequest(Map.of(UUID.randomUUID().toString(), 100.0), -1.0)
+        ), null);
+        BulkCreateBatchResponse response = BulkCreateBatchResponse.builder()
+                .mode(BulkMode.ALL_OR_NOTHING)
+                .created(0)
+                .rejected(1)
+                .results(List.of(BulkBatchResult.builder().index(0).error("Invalid produced quantity").build()))
+                .build();
+
+        when(batchService.createBatches(any(), any())).thenReturn(response);
+
+        mockMvc.perform(post("/api/v1/batch/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bulkRequest)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.results[0].error").value("Invalid produced quantity"));
+    }
+
+    @Test
+    void testGetAllocationsByPaddyId() throws Exception {
+        Paddy paddy = Paddy.builder().id(UUID.randomUUID()).quantity(500.0).price(20.0).purchaseDate(LocalDateTime.now()).build();
+        mockBatch.addPaddy(paddy, 200.0);
+        when(batchService.getAllocationsByPaddyId(paddy.getId().toString()))
+                .thenReturn(mockBatch.getPaddies().stream().map(BatchPaddyResponse::from).toList());
+
+        mockMvc.perform(get("/api/v1/batch/paddy/" + paddy.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].batchId").value(mockBatch.getId().toString()))
+                .andExpect(jsonPath("$[0].paddyId").value(paddy.getId().toString()))
+                .andExpect(jsonPath("$[0].quantity").value(200.0));
     }
 
     @Test
@@ -121,7 +232,7 @@ class BatchControllerTest {
                 .producedQuantity(500.0)
                 .build();
 
-        when(batchService.updateBatchStatus(mockBatch.getId().toString(), true, 500.0))
+        when(batchService.updateBatchStatus(mockBatch.getId().toString(), true, 500.0, null))
                 .thenReturn(mockBatch);
 
         mockMvc.perform(patch("/api/v1/batch/status/" + mockBatch.getId())
@@ -2,10 +2,24 @@ package com.nathancorp.pabrik.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nathancorp.pabrik.dto.request.CreatePaddyRequest;
+import com.nathancorp.pabrik.dto.request.ExportFormat;
+import com.nathancorp.pabrik.dto.request.PaddyImportFormat;
+import com.nathancorp.pabrik.dto.request.PaddySearchRequest;
+import com.nathancorp.pabrik.dto.response.CursorPage;
+import com.nathancorp.pabrik.dto.response.PaddyImportResponse;
+import com.nathancorp.pabrik.dto.response.PaddyResponse;
+import com.nathancorp.pabrik.dto.response.RejectedLine;
+import com.nathancorp.pabrik.exception.ExportCapacityExceededException;
+import com.nathancorp.pabrik.exception.InvalidCursorException;
 import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.StampedTable;
 import com.nathancorp.pabrik.model.Storage;
+import com.nathancorp.pabrik.service.ChangeStampService;
+import com.nathancorp.pabrik.service.ExportService;
 import com.nathancorp.pabrik.service.JwtService;
+import com.nathancorp.pabrik.service.PaddyImportService;
 import com.nathancorp.pabrik.service.PaddyService;
+import com.nathancorp.pabrik.service.WriteRateLimiter;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -16,7 +30,11 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -36,12 +54,24 @@ class PaddyControllerTest {
     @MockBean
     private PaddyService paddyService;
 
+    @MockBean
+    private PaddyImportService paddyImportService;
+
+    @MockBean
+    private ChangeStampService changeStampService;
+
+    @MockBean
+    private ExportService exportService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @MockBean
     private JwtService jwtService;
 
+    @MockBean
+    private WriteRateLimiter writeRateLimiter;
+
     @Test
     void testGetPaddies() throws Exception {
         List<Paddy> paddies = List.of(new Paddy(), new Paddy());
@@ -58,12 +88,73 @@ class PaddyControllerTest {
         verify(paddyService, times(1)).getAllPaddies(any());
     }
 
+    @Test
+    void testSearchPaddies_BindsTypedFilters() throws Exception {
+        Paddy mockPaddy = new Paddy(UUID.randomUUID(), 500.0, 20.0,
+                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 0.0, 500.0, 0L);
+        when(paddyService.searchPaddies(any(), any()))
+                .thenReturn(new PageImpl<>(List.of(mockPaddy), PageRequest.of(0, 5), 1));
+
+        mockMvc.perform(get("/api/v1/paddy/search")
+                        .param("supplier", "Supplier A")
+                        .param("purchasedFrom", "2024-01-01T00:00:00")
+                        .param("minPrice", "10")
+                        .param("storage", "STORAGE_1")
+                        .param("page", "0")
+                        .param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].supplier").value("Supplier A"));
+
+        PaddySearchRequest expected = PaddySearchRequest.builder()
+                .supplier("Supplier A")
+                .purchasedFrom(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .minPrice(10.0)
+                .storage(Storage.STORAGE_1)
+                .build();
+        verify(paddyService, times(1)).searchPaddies(eq(expected), any());
+    }
+
+    @Test
+    void testExportPaddies_StreamsCsvAttachment() throws Exception {
+        ExportService.Slot slot = mock(ExportService.Slot.class);
+        when(exportService.acquireSlot()).thenReturn(slot);
+        when(exportService.getTimeout()).thenReturn(Duration.ofMinutes(30));
+        when(exportService.exportPaddies(any(), any(), eq(ExportFormat.CSV), any())).thenAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write("id,quantity\n".getBytes(StandardCharsets.UTF_8));
+            return 0L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/v1/paddy/export")
+                        .param("from", "2024-01-01T00:00:00"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"paddies.csv\""))
+                .andExpect(content().string("id,quantity\n"));
+        verify(exportService).exportPaddies(eq(LocalDateTime.of(2024, 1, 1, 0, 0)), isNull(), eq(ExportFormat.CSV), any());
+        verify(slot, atLeastOnce()).close();
+    }
+
+    @Test
+    void testExportPaddies_AllSlotsTaken_ReturnsServiceUnavailable() throws Exception {
+        when(exportService.acquireSlot())
+                .thenThrow(new ExportCapacityExceededException("Too many concurrent exports, please retry shortly"));
+
+        mockMvc.perform(get("/api/v1/paddy/export"))
+                .andExpect(status().isServiceUnavailable());
+
+        verify(exportService, never()).exportPaddies(any(), any(), any(), any());
+    }
+
     @Test
     void testGetAvailablePaddies() throws Exception {
         Paddy mockPaddy = new Paddy(UUID.randomUUID(), 500.0, 20.0,
-                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(),0.0);
+                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(),0.0, 500.0, 0L);
         Paddy mockPaddy1 = new Paddy(UUID.randomUUID(), 500.0, 20.0,
-                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(),0.0);
+                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(),0.0, 500.0, 0L);
         List<Paddy> paddies = List.of(
                 mockPaddy,
                 mockPaddy1
@@ -86,8 +177,7 @@ class PaddyControllerTest {
     @Test
     void testGetPaddyById() throws Exception {
         UUID id = UUID.randomUUID();
-        Paddy paddy = new Paddy();
-        paddy.setId(id);
+        PaddyResponse paddy = PaddyResponse.builder().id(id).build();
         when(paddyService.getPaddyById(id.toString())).thenReturn(paddy);
 
         mockMvc.perform(get("/api/v1/paddy/{id}", id.toString()))
@@ -96,6 +186,41 @@ class PaddyControllerTest {
         verify(paddyService, times(1)).getPaddyById(id.toString());
     }
 
+    @Test
+    void testGetPaddyById_SetsStrongETagFromVersion() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(paddyService.getPaddyById(id.toString())).thenReturn(PaddyResponse.builder().id(id).version(3L).build());
+
+        mockMvc.perform(get("/api/v1/paddy/{id}", id.toString()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+        verify(paddyService, never()).getPaddyVersion(any());
+    }
+
+    @Test
+    void testGetPaddyById_NotModified() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(paddyService.getPaddyVersion(id.toString())).thenReturn(3L);
+
+        mockMvc.perform(get("/api/v1/paddy/{id}", id.toString())
+                        .header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(paddyService, never()).getPaddyById(any());
+    }
+
+    @Test
+    void testGetPaddies_NotModified() throws Exception {
+        when(changeStampService.getListETag(StampedTable.PADDY)).thenReturn("W/\"42\"");
+
+        mockMvc.perform(get("/api/v1/paddy")
+                        .param("page", "0")
+                        .param("size", "5")
+                        .header("If-None-Match", "W/\"42\""))
+                .andExpect(status().isNotModified());
+        verify(paddyService, never()).getAllPaddies(any());
+    }
+
     @Test
     void testCreatePaddy() throws Exception {
         CreatePaddyRequest request = new CreatePaddyRequest(500.0, 100.0, "Supplier A");
@@ -140,5 +265,58 @@ class PaddyControllerTest {
 
         verify(paddyService, times(1)).deletePaddy(id);
     }
-}
 
+    @Test
+    void testImportPaddies() throws Exception {
+        PaddyImportResponse response = PaddyImportResponse.builder()
+                .imported(1)
+                .rejected(1)
+                .rejectedLines(List.of(new RejectedLine(3, "Invalid price, should be greater than 0")))
+                .build();
+        when(paddyImportService.importPaddies(any(), eq(PaddyImportFormat.CSV))).thenReturn(response);
+
+        mockMvc.perform(post("/api/v1/paddy/import")
+                        .contentType("text/csv")
+                        .content("quantity,price,supplier\n500.0,20.0,Supplier A\n300.0,0,Supplier B\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejectedLines[0].line").value(3));
+
+        verify(paddyImportService, times(1)).importPaddies(any(), eq(PaddyImportFormat.CSV));
+    }
+
+    @Test
+    void testImportPaddies_Ndjson() throws Exception {
+        when(paddyImportService.importPaddies(any(), eq(PaddyImportFormat.NDJSON)))
+                .thenReturn(PaddyImportResponse.builder().imported(1).rejectedLines(List.of()).build());
+
+        mockMvc.perform(post("/api/v1/paddy/import")
+                        .contentType("application/x-ndjson")
+                        .content("{\"quantity\": 500.0, \"price\": 20.0, \"supplier\": \"Supplier A\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1));
+    }
+
+    @Test
+    void testGetPaddiesAfter() throws Exception {
+        PaddyResponse paddy = PaddyResponse.builder().id(UUID.randomUUID()).quantity(500.0).build();
+        when(paddyService.getPaddiesAfter("cursor-1", 1))
+                .thenReturn(new CursorPage<>(List.of(paddy), 1, "cursor-2"));
+
+        mockMvc.perform(get("/api/v1/paddy/cursor")
+                        .param("cursor", "cursor-1")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(paddy.getId().toString()))
+                .andExpect(jsonPath("$.nextCursor").value("cursor-2"));
+    }
+
+    @Test
+    void testGetPaddiesAfter_InvalidCursor() throws Exception {
+        when(paddyService.getPaddiesAfter(any(), anyInt())).thenThrow(new InvalidCursorException("Invalid cursor"));
+
+        mockMvc.perform(get("/api/v1/paddy/cursor")
+                        .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+}
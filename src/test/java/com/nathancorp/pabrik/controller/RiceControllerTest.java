@@ -2,11 +2,16 @@ package com.nathancorp.pabrik.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nathancorp.pabrik.dto.request.CreateRiceRequest;
+import com.nathancorp.pabrik.dto.response.RiceResponse;
 import com.nathancorp.pabrik.model.Batch;
 import com.nathancorp.pabrik.model.Rice;
 import com.nathancorp.pabrik.model.RiceType;
+import com.nathancorp.pabrik.model.StampedTable;
+import com.nathancorp.pabrik.service.ChangeStampService;
+import com.nathancorp.pabrik.service.ExportService;
 import com.nathancorp.pabrik.service.JwtService;
 import com.nathancorp.pabrik.service.RiceService;
+import com.nathancorp.pabrik.service.WriteRateLimiter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,12 +42,21 @@ class RiceControllerTest {
     @MockBean
     private RiceService riceService;
 
+    @MockBean
+    private ChangeStampService changeStampService;
+
+    @MockBean
+    private ExportService exportService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @MockBean
     private JwtService jwtService;
 
+    @MockBean
+    private WriteRateLimiter writeRateLimiter;
+
     private Batch mockBatch;
 
     private Rice mockRice;
@@ -68,7 +82,7 @@ class RiceControllerTest {
 
     @Test
     void testGetRice() throws Exception {
-        List<Rice> riceList = List.of(new Rice(), new Rice());
+        List<RiceResponse> riceList = List.of(RiceResponse.builder().build(), RiceResponse.builder().build());
         Pageable pageable = PageRequest.of(0, 5);
 
         when(riceService.getAllRice(any())).thenReturn(new PageImpl<>(riceList, pageable, riceList.size()));
@@ -83,9 +97,21 @@ class RiceControllerTest {
         verify(riceService, times(1)).getAllRice(any());
     }
 
+    @Test
+    void testGetRice_NotModified() throws Exception {
+        when(changeStampService.getListETag(StampedTable.RICE)).thenReturn("W/\"7\"");
+
+        mockMvc.perform(get("/api/v1/rice")
+                        .param("page", "0")
+                        .param("size", "5")
+                        .header("If-None-Match", "W/\"7\""))
+                .andExpect(status().isNotModified());
+        verify(riceService, never()).getAllRice(any());
+    }
+
     @Test
     void testGetRiceById() throws Exception {
-        when(riceService.getRiceById(mockRice.getId().toString())).thenReturn(mockRice);
+        when(riceService.getRiceById(mockRice.getId().toString())).thenReturn(RiceResponse.from(mockRice));
 
         mockMvc.perform(get("/api/v1/rice/{id}", mockRice.getId().toString()))
                 .andExpect(status().isOk())
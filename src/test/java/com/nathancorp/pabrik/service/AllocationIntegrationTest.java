@@ -0,0 +1,103 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.response.BatchPaddyResponse;
+import com.nathancorp.pabrik.dto.response.PaddyResponse;
+import com.nathancorp.pabrik.exception.PaddyNotAvailableForProcessingException;
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.repository.PaddyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.config.location=classpath:/test.properties")
+class AllocationIntegrationTest {
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private PaddyService paddyService;
+
+    @Autowired
+    private PaddyRepository paddyRepository;
+
+    @Autowired
+    private AvailablePaddyIndex availablePaddyIndex;
+
+    @Test
+    void testCreateBatchFromOldestPaddies_ConsumesOldestFirst() {
+        String supplier = "Supplier " + UUID.randomUUID();
+        Paddy oldest = paddyService.createPaddy(100.0, 20.0, supplier);
+        Paddy middle = paddyService.createPaddy(100.0, 20.0, supplier);
+        Paddy newest = paddyService.createPaddy(100.0, 20.0, supplier);
+
+        Batch batch = batchService.createBatchFromOldestPaddies(250.0, 200.0, supplier, null);
+
+        Map<UUID, Double> allocated = batchService.getBatchById(batch.getId().toString()).getPaddies().stream()
+                .collect(Collectors.toMap(BatchPaddyResponse::getPaddyId, BatchPaddyResponse::getQuantity));
+        assertEquals(Map.of(oldest.getId(), 100.0, middle.getId(), 100.0, newest.getId(), 50.0), allocated);
+        assertEquals(50.0, paddyService.getPaddyById(newest.getId().toString()).getRemainingQuantity(), 1e-9);
+
+        // the index follows the committed consumption, only the rest of the newest paddy is left
+        Batch rest = batchService.createBatchFromOldestPaddies(50.0, 40.0, supplier, null);
+        assertEquals(List.of(newest.getId()), rest.getPaddies().stream().map(a -> a.getPaddy().getId()).toList());
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> batchService.createBatchFromOldestPaddies(1.0, 1.0, supplier, null));
+    }
+
+    @Test
+    void testCreateBatch_TakingWhatIsLeftDespiteRoundingUsesThePaddyUp() {
+        String supplier = "Supplier " + UUID.randomUUID();
+        Paddy paddy = paddyService.createPaddy(0.3, 20.0, supplier);
+
+        // 0.1 + 0.2 is a rounding error above 0.3 in double precision
+        batchService.createBatch(Map.of(paddy.getId().toString(), 0.1), 0.05);
+        batchService.createBatch(Map.of(paddy.getId().toString(), 0.2), 0.1);
+
+        PaddyResponse usedUp = paddyService.getPaddyById(paddy.getId().toString());
+        assertEquals(0.0, usedUp.getRemainingQuantity());
+        assertEquals(0.3, usedUp.getProcessedQuantity());
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> batchService.createBatchFromOldestPaddies(0.1, 0.05, supplier, null));
+    }
+
+    @Test
+    void testCreateBatchFromOldestPaddies_FindsPaddyWrittenAroundTheIndexAfterReload() {
+        String supplier = "Supplier " + UUID.randomUUID();
+        // e.g. written by another instance, this instance's index does not know it yet
+        Paddy paddy = paddyRepository.save(paddyService.newPaddy(300.0, 20.0, supplier));
+
+        // a shortage in the index is not a reason to reload, the max-age reload picks the paddy up
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> batchService.createBatchFromOldestPaddies(120.0, 100.0, supplier, null));
+        availablePaddyIndex.reload();
+        Batch batch = batchService.createBatchFromOldestPaddies(120.0, 100.0, supplier, null);
+
+        assertEquals(paddy.getId(), batch.getPaddies().get(0).getPaddy().getId());
+        assertEquals(180.0, paddyService.getPaddyById(paddy.getId().toString()).getRemainingQuantity(), 1e-9);
+    }
+
+    @Test
+    void testCreateBatchFromOldestPaddies_ReloadsWhenPickedPaddyWasConsumedAroundTheIndex() {
+        String supplier = "Supplier " + UUID.randomUUID();
+        Paddy consumed = paddyService.createPaddy(100.0, 20.0, supplier);
+        Paddy available = paddyService.createPaddy(100.0, 20.0, supplier);
+        // e.g. consumed by another instance, this instance's index still offers it
+        consumed.setProcessedQuantity(100.0);
+        consumed.setRemainingQuantity(0.0);
+        paddyRepository.save(consumed);
+
+        Batch batch = batchService.createBatchFromOldestPaddies(80.0, 60.0, supplier, null);
+
+        assertEquals(List.of(available.getId()), batch.getPaddies().stream().map(a -> a.getPaddy().getId()).toList());
+        assertEquals(20.0, paddyService.getPaddyById(available.getId().toString()).getRemainingQuantity(), 1e-9);
+    }
+}
@@ -0,0 +1,190 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.response.PaddyResponse;
+import com.nathancorp.pabrik.exception.PaddyNotAvailableForProcessingException;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.Storage;
+import com.nathancorp.pabrik.repository.PaddyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AvailablePaddyIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    @Mock
+    private PaddyRepository paddyRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AvailablePaddyIndex index;
+
+    private final PaddyResponse oldest = paddy("Supplier A", NOW.minusDays(3), 100.0);
+
+    private final PaddyResponse middle = paddy("Supplier B", NOW.minusDays(2), 200.0);
+
+    private final PaddyResponse newest = paddy("Supplier A", NOW.minusDays(1), 300.0);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // listed out of order, the index sorts by purchase date
+        when(paddyRepository.streamAvailable()).thenAnswer(invocation -> Stream.of(newest, oldest, middle));
+        index = new AvailablePaddyIndex(paddyRepository, transactionManager, Duration.ofMinutes(5),
+                Clock.fixed(Instant.parse("2024-06-01T12:00:00Z"), ZoneOffset.UTC));
+    }
+
+    @Test
+    void testAllocate_TakesOldestFirstAndLastInPart() {
+        Map<String, Double> allocation = index.allocate(350.0, null, null);
+
+        assertEquals(List.of(oldest.getId().toString(), middle.getId().toString(), newest.getId().toString()),
+                List.copyOf(allocation.keySet()));
+        assertEquals(List.of(100.0, 200.0, 50.0), List.copyOf(allocation.values()));
+    }
+
+    @Test
+    void testAllocate_OnlyMatchingSupplierAndStorage() {
+        Map<String, Double> bySupplier = index.allocate(150.0, "Supplier A", null);
+
+        assertEquals(Map.of(oldest.getId().toString(), 100.0, newest.getId().toString(), 50.0), bySupplier);
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> index.allocate(10.0, null, Storage.STORAGE_2));
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> index.allocate(10.0, "Supplier C", null));
+    }
+
+    @Test
+    void testAllocate_NotEnough_ThrowsException() {
+        assertThrows(PaddyNotAvailableForProcessingException.class, () -> index.allocate(600.1, null, null));
+    }
+
+    @Test
+    void testAllocate_LoadsOnceUntilStale() {
+        index.allocate(10.0, null, null);
+        index.allocate(10.0, null, null);
+
+        verify(paddyRepository, times(1)).streamAvailable();
+    }
+
+    @Test
+    void testAllocate_SkipsReservedUntilReleased() {
+        Map<String, Double> first = index.allocate(150.0, null, null);
+        Map<String, Double> second = index.allocate(150.0, null, null);
+
+        assertEquals(Map.of(oldest.getId().toString(), 100.0, middle.getId().toString(), 50.0), first);
+        assertEquals(Map.of(middle.getId().toString(), 150.0), second);
+        assertThrows(PaddyNotAvailableForProcessingException.class, () -> index.allocate(300.1, null, null));
+
+        // a reload keeps the reservations
+        index.reload();
+        assertEquals(Map.of(newest.getId().toString(), 300.0), index.allocate(300.0, null, null));
+
+        index.release(first);
+        assertEquals(Map.of(oldest.getId().toString(), 100.0, middle.getId().toString(), 50.0),
+                index.allocate(150.0, null, null));
+    }
+
+    @Test
+    void testReload_WaitsForReloadInFlight() throws Exception {
+        index.reload();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        when(paddyRepository.streamAvailable()).thenAnswer(invocation -> {
+            loading.countDown();
+            finish.await();
+            return Stream.of(oldest);
+        });
+
+        Thread first = new Thread(index::reload);
+        first.start();
+        loading.await();
+        Thread second = new Thread(index::reload);
+        second.start();
+        while (second.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        finish.countDown();
+        first.join();
+        second.join();
+
+        // the initial load plus the one shared by both callers
+        verify(paddyRepository, times(2)).streamAvailable();
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testAllocate_OnlyFromStorageSet() {
+        index.reload();
+        Paddy dried = Paddy.builder().id(UUID.randomUUID()).quantity(50.0).price(20.0).supplier("Supplier B")
+                .storage(Storage.STORAGE_2).purchaseDate(NOW).processedQuantity(0.0).remainingQuantity(50.0)
+                .build();
+        index.added(List.of(dried));
+
+        assertEquals(Map.of(dried.getId().toString(), 40.0), index.allocate(40.0, null, Storage.STORAGE_2));
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> index.allocate(10.1, null, Storage.STORAGE_2));
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> index.allocate(1.0, null, Storage.STORAGE_3));
+    }
+
+    @Test
+    void testConsumed_RoundingLeftoverUsesThePaddyUp() {
+        index.reload();
+
+        // 100 - 99.9 - 0.1 leaves about 1e-14 in double precision
+        index.consumed(Map.of(oldest.getId(), 99.9));
+        index.consumed(Map.of(oldest.getId(), 0.1));
+
+        assertEquals(2, index.size());
+        assertEquals(Map.of(middle.getId().toString(), 10.0), index.allocate(10.0, null, null));
+    }
+
+    @Test
+    void testWrites_UpdateTheIndex() {
+        index.reload();
+        Paddy added = Paddy.builder().id(UUID.randomUUID()).quantity(50.0).price(20.0).supplier("Supplier B")
+                .storage(Storage.STORAGE_1).purchaseDate(NOW.minusDays(4)).processedQuantity(0.0).remainingQuantity(50.0)
+                .build();
+
+        index.added(List.of(added));
+        index.consumed(Map.of(oldest.getId(), 100.0, middle.getId(), 150.0));
+        index.removed(newest.getId());
+
+        assertEquals(2, index.size());
+        assertEquals(Map.of(added.getId().toString(), 50.0, middle.getId().toString(), 50.0),
+                index.allocate(100.0, null, null));
+        assertThrows(PaddyNotAvailableForProcessingException.class, () -> index.allocate(100.1, null, null));
+    }
+
+    private static PaddyResponse paddy(String supplier, LocalDateTime purchaseDate, double remaining) {
+        return PaddyResponse.builder()
+                .id(UUID.randomUUID())
+                .quantity(remaining)
+                .price(20.0)
+                .supplier(supplier)
+                .storage(Storage.STORAGE_1)
+                .purchaseDate(purchaseDate)
+                .remainingQuantity(remaining)
+                .version(0L)
+                .build();
+    }
+}
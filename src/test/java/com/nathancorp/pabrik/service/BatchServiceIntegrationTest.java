@@ -0,0 +1,245 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.request.BulkMode;
+import com.nathancorp.pabrik.dto.request.CreateBatchRequest;
+import com.nathancorp.pabrik.dto.response.BatchPaddyResponse;
+import com.nathancorp.pabrik.dto.response.BatchResponse;
+import com.nathancorp.pabrik.dto.response.BulkCreateBatchResponse;
+import com.nathancorp.pabrik.dto.response.RiceResponse;
+import com.nathancorp.pabrik.exception.PaddyNotAvailableForProcessingException;
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.Rice;
+import com.nathancorp.pabrik.repository.BatchRepository;
+import com.nathancorp.pabrik.repository.PaddyRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.config.location=classpath:/test.properties",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class BatchServiceIntegrationTest {
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private PaddyService paddyService;
+
+    @Autowired
+    private RiceService riceService;
+
+    @Autowired
+    private PaddyRepository paddyRepository;
+
+    @Autowired
+    private BatchRepository batchRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testCreateBatch_ConstantStatementCount() {
+        long singlePaddyStatements = countStatementsForBatchOf(1);
+        long manyPaddiesStatements = countStatementsForBatchOf(25);
+
+        assertTrue(singlePaddyStatements > 0);
+        assertEquals(singlePaddyStatements, manyPaddiesStatements);
+    }
+
+    @Test
+    void testIncrementProcessedQuantities_GuardsAvailableQuantity() {
+        Paddy paddy = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+
+        assertArrayEquals(new int[]{1}, paddyRepository.incrementProcessedQuantities(Map.of(paddy.getId(), 400.0)));
+        assertArrayEquals(new int[]{0}, paddyRepository.incrementProcessedQuantities(Map.of(paddy.getId(), 200.0)));
+        assertEquals(400.0, paddyService.getPaddyById(paddy.getId().toString()).getProcessedQuantity());
+        assertEquals(100.0, paddyService.getPaddyById(paddy.getId().toString()).getRemainingQuantity());
+    }
+
+    @Test
+    void testGetAllAvailablePaddies_DepletedPaddiesLeave() {
+        Paddy depleted = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+        Paddy available = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+        batchService.createBatch(Map.of(depleted.getId().toString(), 500.0, available.getId().toString(), 100.0), 450.0);
+
+        List<Paddy> paddies = paddyService.getAllAvailablePaddies(PageRequest.of(0, 1000)).getContent();
+
+        assertTrue(paddies.stream().noneMatch(paddy -> paddy.getId().equals(depleted.getId())));
+        assertEquals(400.0, paddies.stream().filter(paddy -> paddy.getId().equals(available.getId()))
+                .findFirst().orElseThrow().getRemainingQuantity());
+        assertEquals(paddies, paddies.stream().sorted(Comparator.comparing(Paddy::getPurchaseDate)).toList());
+    }
+
+    @Test
+    void testCreateBatch_ConcurrentBatchesNeverOvercommitPaddy() throws Exception {
+        Paddy paddy = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+        Map<String, Double> paddyAndQuantity = Map.of(paddy.getId().toString(), 100.0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Callable<Object> createBatch = () -> batchService.createBatch(paddyAndQuantity, 80.0);
+            results.add(executor.submit(createBatch));
+        }
+        int created = 0;
+        for (Future<?> result : results) {
+            try {
+                result.get();
+                created++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(PaddyNotAvailableForProcessingException.class, e.getCause());
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(5, created);
+        assertEquals(500.0, paddyService.getPaddyById(paddy.getId().toString()).getProcessedQuantity());
+    }
+
+    @Test
+    void testCreateBatch_AllocationsQueryableByPaddy() {
+        Paddy paddy = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+        Batch first = batchService.createBatch(Map.of(paddy.getId().toString(), 100.0), 80.0);
+        Batch second = batchService.createBatch(Map.of(paddy.getId().toString(), 150.0), 120.0);
+
+        List<BatchPaddyResponse> allocations = batchService.getAllocationsByPaddyId(paddy.getId().toString());
+
+        assertEquals(2, allocations.size());
+        assertEquals(Map.of(first.getId(), 100.0, second.getId(), 150.0), allocations.stream()
+                .collect(Collectors.toMap(BatchPaddyResponse::getBatchId, BatchPaddyResponse::getQuantity)));
+    }
+
+    @Test
+    void testGetAllBatch_ConstantStatementCount() {
+        for (int i = 0; i < 6; i++) {
+            createBatchOf(3);
+        }
+
+        statistics.clear();
+        batchService.getAllBatch(PageRequest.of(0, 1));
+        long singleBatchStatements = statistics.getPrepareStatementCount();
+        statistics.clear();
+        Page<BatchResponse> batches = batchService.getAllBatch(PageRequest.of(0, 5));
+        long manyBatchesStatements = statistics.getPrepareStatementCount();
+
+        assertEquals(3, singleBatchStatements);
+        assertEquals(singleBatchStatements, manyBatchesStatements);
+        assertTrue(batches.getContent().stream().allMatch(batch -> batch.getPaddies() != null));
+    }
+
+    @Test
+    void testGetBatchById_AllocationsLoadedWithBatch() {
+        Batch created = createBatchOf(3);
+
+        statistics.clear();
+        // no open session here, so the allocations must come with the batch
+        BatchResponse batch = batchService.getBatchById(created.getId().toString());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(3, batch.getPaddies().size());
+    }
+
+    @Test
+    void testGetAllRice_SingleQueryPerPage() {
+        createBatchOf(1);
+        Rice standalone = riceService.createRice(100.0);
+
+        statistics.clear();
+        Page<RiceResponse> rice = riceService.getAllRice(PageRequest.of(0, 1000));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(rice.getContent().stream().anyMatch(r -> r.getId().equals(standalone.getId()) && r.getBatchId() == null));
+        assertTrue(rice.getContent().stream().anyMatch(r -> r.getBatchId() != null));
+    }
+
+    @Test
+    void testCreatePaddy_TimeOrderedIds() {
+        Paddy first = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+        Paddy second = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+
+        assertEquals(7, first.getId().version());
+        assertTrue(first.getId().compareTo(second.getId()) < 0);
+    }
+
+    @Test
+    void testCreateBatches_BestEffort_CreatesBatchesThatFit() {
+        Paddy paddy = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+        List<CreateBatchRequest> batches = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            batches.add(new CreateBatchRequest(Map.of(paddy.getId().toString(), 100.0), 80.0));
+        }
+
+        BulkCreateBatchResponse response = batchService.createBatches(batches, BulkMode.BEST_EFFORT);
+
+        assertEquals(5, response.getCreated());
+        assertEquals(3, response.getRejected());
+        assertEquals(500.0, paddyService.getPaddyById(paddy.getId().toString()).getProcessedQuantity());
+    }
+
+    @Test
+    void testCreateBatches_AllOrNothing_CreatesNothing() {
+        Paddy paddy = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+        long batchCount = batchRepository.count();
+        List<CreateBatchRequest> batches = List.of(
+                new CreateBatchRequest(Map.of(paddy.getId().toString(), 300.0), 250.0),
+                new CreateBatchRequest(Map.of(paddy.getId().toString(), 300.0), 250.0)
+        );
+
+        BulkCreateBatchResponse response = batchService.createBatches(batches, BulkMode.ALL_OR_NOTHING);
+
+        assertEquals(0, response.getCreated());
+        assertEquals(batchCount, batchRepository.count());
+        assertEquals(0.0, paddyService.getPaddyById(paddy.getId().toString()).getProcessedQuantity());
+    }
+
+    private Batch createBatchOf(int paddyCount) {
+        Map<String, Double> paddyAndQuantity = new LinkedHashMap<>();
+        for (int i = 0; i < paddyCount; i++) {
+            Paddy paddy = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+            paddyAndQuantity.put(paddy.getId().toString(), 100.0);
+        }
+        return batchService.createBatch(paddyAndQuantity, 80.0 * paddyCount);
+    }
+
+    private long countStatementsForBatchOf(int paddyCount) {
+        Map<String, Double> paddyAndQuantity = new LinkedHashMap<>();
+        for (int i = 0; i < paddyCount; i++) {
+            Paddy paddy = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+            paddyAndQuantity.put(paddy.getId().toString(), 100.0);
+        }
+
+        statistics.clear();
+        batchService.createBatch(paddyAndQuantity, 80.0 * paddyCount);
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -1,23 +1,38 @@
 package com.nathancorp.pabrik.service;
 
+import com.nathancorp.pabrik.dto.request.BulkMode;
+import com.nathancorp.pabrik.dto.request.CreateBatchRequest;
+import com.nathancorp.pabrik.dto.response.BatchPaddyResponse;
+import com.nathancorp.pabrik.dto.response.BatchResponse;
+import com.nathancorp.pabrik.dto.response.BulkCreateBatchResponse;
 import com.nathancorp.pabrik.exception.InvalidQuantityException;
+import com.nathancorp.pabrik.exception.OptimisticLockConflictException;
 import com.nathancorp.pabrik.exception.PaddyNotAvailableForProcessingException;
 import com.nathancorp.pabrik.model.Batch;
 import com.nathancorp.pabrik.model.Paddy;
 import com.nathancorp.pabrik.model.Rice;
 import com.nathancorp.pabrik.model.Storage;
+import com.nathancorp.pabrik.repository.BatchPaddyRepository;
 import com.nathancorp.pabrik.repository.BatchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -35,12 +50,40 @@ class BatchServiceTest {
     @Mock
     private BatchRepository batchRepository;
 
+    @Mock
+    private BatchPaddyRepository batchPaddyRepository;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private ChangeStampService changeStampService;
+
+    @Mock
+    private YieldService yieldService;
+
+    @Mock
+    private CostingService costingService;
+
+    @Mock
+    private AvailablePaddyIndex availablePaddyIndex;
+
+    @Spy
+    private DetailCache<BatchResponse> batchCache =
+            new DetailCache<>(new SimpleMeterRegistry(), "batchDetails", 100, Duration.ofMinutes(1));
+
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry =
+            new OptimisticLockRetry(TransactionOperations.withoutTransaction(), 3, Duration.ZERO, Duration.ZERO);
+
     @InjectMocks
     private BatchService batchService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(batchService, "bulkMaxSize", 1000);
+        ReflectionTestUtils.setField(batchService, "bulkChunkSize", 50);
     }
 
     @Test
@@ -59,12 +102,19 @@ class BatchServiceTest {
         );
         Pageable pageable = PageRequest.of(0, 5);
 
+        UUID paddyId = UUID.randomUUID();
+
         when(batchRepository.findAll(pageable))
                 .thenReturn(new PageImpl<>(mockBatchList, pageable, mockBatchList.size()));
+        when(batchPaddyRepository.findAllByBatchIdIn(List.of(mockBatchList.get(0).getId(), mockBatchList.get(1).getId())))
+                .thenReturn(List.of(new BatchPaddyResponse(mockBatchList.get(0).getId(), paddyId, 100.0)));
 
-        Page<Batch> batchList = batchService.getAllBatch(pageable);
+        Page<BatchResponse> batchList = batchService.getAllBatch(pageable);
 
         assertEquals(2, batchList.getTotalElements());
+        assertEquals(paddyId, batchList.getContent().get(0).getPaddies().get(0).getPaddyId());
+        assertTrue(batchList.getContent().get(1).getPaddies().isEmpty());
+        verify(batchPaddyRepository, times(1)).findAllByBatchIdIn(any());
     }
 
     @Test
@@ -78,7 +128,7 @@ class BatchServiceTest {
         when(batchRepository.findById(any())).thenReturn(Optional.ofNullable(mockBatch));
 
         assert mockBatch != null;
-        Batch batch = batchService.getBatchById(mockBatch.getId().toString());
+        BatchResponse batch = batchService.getBatchById(mockBatch.getId().toString());
 
         assertEquals(batch.getId(), mockBatch.getId());
         assertEquals(batch.getQuantity(), mockBatch.getQuantity());
@@ -86,15 +136,13 @@ class BatchServiceTest {
 
     @Test
     void testCreateBatch_Success() {
-        Map<String, Double> paddyAndQuantity = Map.of("paddy1", 100.0, "paddy2", 200.0);
-
         Paddy mockPaddy1 = new Paddy(UUID.randomUUID(), 500.0, 200.0, "Supplier A",
-                Storage.STORAGE_1, LocalDateTime.now(),  50.0);
+                Storage.STORAGE_1, LocalDateTime.now(),  50.0, 450.0, 0L);
         Paddy mockPaddy2 = new Paddy(UUID.randomUUID(), 1000.0, 300.0, "Supplier B",
-                Storage.STORAGE_1, LocalDateTime.now(),  100.0);
+                Storage.STORAGE_1, LocalDateTime.now(),  100.0, 900.0, 0L);
+        Map<String, Double> paddyAndQuantity = Map.of(mockPaddy1.getId().toString(), 100.0, mockPaddy2.getId().toString(), 200.0);
 
-        when(paddyService.getAvailablePaddyByIdForBatch("paddy1", 100.0)).thenReturn(mockPaddy1);
-        when(paddyService.getAvailablePaddyByIdForBatch("paddy2", 200.0)).thenReturn(mockPaddy2);
+        when(paddyService.getAvailablePaddiesForBatch(paddyAndQuantity)).thenReturn(List.of(mockPaddy1, mockPaddy2));
 
         Batch mockBatch = Batch.builder()
                 .id(UUID.randomUUID())
@@ -102,8 +150,6 @@ class BatchServiceTest {
                 .processingDate(LocalDateTime.now())
                 .isProcessed(true)
                 .storage(Storage.STORAGE_2)
-                .paddies(List.of(mockPaddy1, mockPaddy2))
-                .paddiesAndQuantity(paddyAndQuantity)
                 .quantity(300.0)
                 .build();
 
@@ -125,7 +171,29 @@ class BatchServiceTest {
         assertEquals(250.0, createdBatch.getProducedQuantity());
         verify(batchRepository, times(1)).save(any(Batch.class));
         verify(riceService, times(1)).createRice(any(Batch.class));
-        verify(paddyService, times(1)).updatePaddiesProcessedQuantity(paddyAndQuantity, mockBatch);
+        verify(paddyService, times(1)).getAvailablePaddiesForBatch(paddyAndQuantity);
+        verify(paddyService, times(1)).updatePaddiesProcessedQuantity(paddyAndQuantity);
+
+        ArgumentCaptor<Batch> savedBatch = ArgumentCaptor.forClass(Batch.class);
+        verify(batchRepository).save(savedBatch.capture());
+        assertEquals(2, savedBatch.getValue().getPaddies().size());
+        assertEquals(mockPaddy1, savedBatch.getValue().getPaddies().get(0).getPaddy());
+        assertEquals(100.0, savedBatch.getValue().getPaddies().get(0).getQuantity());
+        assertSame(savedBatch.getValue(), savedBatch.getValue().getPaddies().get(1).getBatch());
+        assertEquals(200.0, savedBatch.getValue().getPaddies().get(1).getQuantity());
+    }
+
+    @Test
+    void testGetAllocationsByPaddyId() {
+        UUID paddyId = UUID.randomUUID();
+        UUID batchId = UUID.randomUUID();
+        when(batchPaddyRepository.findAllByPaddyId(paddyId)).thenReturn(List.of(new BatchPaddyResponse(batchId, paddyId, 100.0)));
+
+        List<BatchPaddyResponse> allocations = batchService.getAllocationsByPaddyId(paddyId.toString());
+
+        assertEquals(1, allocations.size());
+        assertEquals(batchId, allocations.get(0).getBatchId());
+        assertEquals(paddyId, allocations.get(0).getPaddyId());
     }
 
     @Test
@@ -143,7 +211,7 @@ class BatchServiceTest {
     void testCreateBatch_InsufficientPaddyQuantity_ThrowsException() {
         Map<String, Double> paddyAndQuantity = Map.of("paddy1", 500.0);
 
-        when(paddyService.getAvailablePaddyByIdForBatch("paddy1", 500.0))
+        when(paddyService.getAvailablePaddiesForBatch(paddyAndQuantity))
                 .thenThrow(new PaddyNotAvailableForProcessingException("Paddy not available"));
 
         PaddyNotAvailableForProcessingException exception = assertThrows(PaddyNotAvailableForProcessingException.class,
@@ -172,6 +240,57 @@ class BatchServiceTest {
         verifyNoInteractions(batchRepository, riceService, paddyService);
     }
 
+    @Test
+    void testCreateBatchFromOldestPaddies_ReloadsStaleIndex() {
+        Paddy gone = new Paddy(UUID.randomUUID(), 500.0, 20.0, "Supplier A",
+                Storage.STORAGE_1, LocalDateTime.now().minusDays(2), 500.0, 0.0, 3L);
+        Paddy paddy = new Paddy(UUID.randomUUID(), 500.0, 20.0, "Supplier A",
+                Storage.STORAGE_1, LocalDateTime.now().minusDays(1), 0.0, 500.0, 0L);
+        Map<String, Double> stale = Map.of(gone.getId().toString(), 200.0);
+        Map<String, Double> fresh = Map.of(paddy.getId().toString(), 200.0);
+        when(availablePaddyIndex.allocate(200.0, "Supplier A", null)).thenReturn(stale).thenReturn(fresh);
+        when(paddyService.getAvailablePaddiesForBatch(stale)).thenReturn(List.of(gone));
+        // consumed by another instance since the index was loaded, the guarded update catches it
+        doThrow(new PaddyNotAvailableForProcessingException("Paddy not available for processing with id " + gone.getId()))
+                .when(paddyService).updatePaddiesProcessedQuantity(stale);
+        when(paddyService.getAvailablePaddiesForBatch(fresh)).thenReturn(List.of(paddy));
+        when(batchRepository.save(any(Batch.class))).thenAnswer(invocation -> {
+            Batch batch = invocation.getArgument(0);
+            batch.setId(UUID.randomUUID());
+            return batch;
+        });
+        when(riceService.createRice(any(Batch.class))).thenReturn(Rice.builder().id(UUID.randomUUID()).quantity(150.0).build());
+
+        Batch batch = batchService.createBatchFromOldestPaddies(200.0, 150.0, "Supplier A", null);
+
+        assertEquals(200.0, batch.getQuantity());
+        assertEquals(paddy.getId(), batch.getPaddies().get(0).getPaddyId());
+        verify(availablePaddyIndex, times(1)).reload();
+        verify(paddyService, times(1)).updatePaddiesProcessedQuantity(fresh);
+        verify(availablePaddyIndex).release(stale);
+        verify(availablePaddyIndex).release(fresh);
+    }
+
+    @Test
+    void testCreateBatchFromOldestPaddies_InvalidInputQuantity_ThrowsException() {
+        assertThrows(InvalidQuantityException.class, () -> batchService.createBatchFromOldestPaddies(0.0, 150.0, null, null));
+        verifyNoInteractions(availablePaddyIndex, paddyService);
+    }
+
+    @Test
+    void testCreateBatchFromOldestPaddies_IndexShort_ThrowsWithoutReload() {
+        when(availablePaddyIndex.allocate(900.0, null, null))
+                .thenThrow(new PaddyNotAvailableForProcessingException("Not enough paddy available for processing"));
+
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> batchService.createBatchFromOldestPaddies(900.0, 150.0, null, null));
+
+        verify(availablePaddyIndex, times(1)).allocate(900.0, null, null);
+        verify(availablePaddyIndex, never()).reload();
+        verifyNoInteractions(paddyService);
+        verify(batchRepository, never()).save(any(Batch.class));
+    }
+
     @Test
     void testUpdateBatchStatus_Success() {
         UUID batchId = UUID.randomUUID();
@@ -189,6 +308,10 @@ class BatchServiceTest {
         assertTrue(updatedBatch.isProcessed());
         assertEquals(500.0, updatedBatch.getProducedQuantity());
         verify(batchRepository, times(1)).save(mockBatch);
+        InOrder yieldUpdate = inOrder(yieldService, batchRepository);
+        yieldUpdate.verify(yieldService).remove(mockBatch);
+        yieldUpdate.verify(batchRepository).save(mockBatch);
+        yieldUpdate.verify(yieldService).add(mockBatch);
     }
 
     @Test
@@ -259,4 +382,126 @@ class BatchServiceTest {
         verifyNoInteractions(batchRepository);
     }
 
+    @Test
+    void testUpdateBatchStatus_StaleVersion_ThrowsException() {
+        UUID batchId = UUID.randomUUID();
+        Batch mockBatch = new Batch();
+        mockBatch.setId(batchId);
+        mockBatch.setVersion(3L);
+
+        when(batchRepository.findById(batchId)).thenReturn(Optional.of(mockBatch));
+
+        assertThrows(OptimisticLockConflictException.class,
+                () -> batchService.updateBatchStatus(batchId.toString(), true, 500.0, 2L));
+        verify(batchRepository, times(1)).findById(batchId);
+        verify(batchRepository, never()).save(any(Batch.class));
+    }
+
+    @Test
+    void testUpdateBatchStatus_OptimisticLockFailure_Retries() {
+        UUID batchId = UUID.randomUUID();
+        Batch mockBatch = new Batch();
+        mockBatch.setId(batchId);
+        mockBatch.setVersion(3L);
+
+        when(batchRepository.findById(batchId)).thenReturn(Optional.of(mockBatch));
+        when(batchRepository.save(any(Batch.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Batch.class, batchId))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        Batch updatedBatch = batchService.updateBatchStatus(batchId.toString(), true, 500.0, 3L);
+
+        assertEquals(500.0, updatedBatch.getProducedQuantity());
+        verify(batchRepository, times(2)).findById(batchId);
+        verify(batchRepository, times(2)).save(mockBatch);
+    }
+
+    @Test
+    void testUpdateBatchStatus_OptimisticLockFailure_RetriesExhausted() {
+        UUID batchId = UUID.randomUUID();
+        Batch mockBatch = new Batch();
+        mockBatch.setId(batchId);
+
+        when(batchRepository.findById(batchId)).thenReturn(Optional.of(mockBatch));
+        when(batchRepository.save(any(Batch.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Batch.class, batchId));
+
+        assertThrows(OptimisticLockConflictException.class,
+                () -> batchService.updateBatchStatus(batchId.toString(), true, 500.0));
+        verify(batchRepository, times(3)).save(mockBatch);
+    }
+
+
+    @Test
+    void testCreateBatches_AllOrNothing_RejectsEverything() {
+        Paddy paddy = new Paddy(UUID.randomUUID(), 500.0, 20.0, "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 0.0, 500.0, 0L);
+        when(paddyService.getPaddiesByIds(any())).thenReturn(Map.of(paddy.getId(), paddy));
+
+        BulkCreateBatchResponse response = batchService.createBatches(List.of(
+                new CreateBatchRequest(Map.of(paddy.getId().toString(), 300.0), 250.0),
+                new CreateBatchRequest(Map.of(paddy.getId().toString(), 300.0), 250.0)
+        ), null);
+
+        assertEquals(BulkMode.ALL_OR_NOTHING, response.getMode());
+        assertEquals(0, response.getCreated());
+        assertEquals(2, response.getRejected());
+        assertFalse(response.getResults().get(0).isCreated());
+        assertTrue(response.getResults().get(1).getError().contains(paddy.getId().toString()));
+        verify(batchRepository, never()).save(any());
+        verify(paddyService, never()).updatePaddiesProcessedQuantity(any());
+    }
+
+    @Test
+    void testCreateBatches_BestEffort_CreatesValidBatches() {
+        Paddy paddy = new Paddy(UUID.randomUUID(), 500.0, 20.0, "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 0.0, 500.0, 0L);
+        when(paddyService.getPaddiesByIds(any())).thenReturn(Map.of(paddy.getId(), paddy));
+        when(batchRepository.save(any())).thenAnswer(invocation -> {
+            Batch batch = invocation.getArgument(0);
+            batch.setId(UUID.randomUUID());
+            return batch;
+        });
+        when(riceService.createRice(any(Batch.class))).thenReturn(Rice.builder().id(UUID.randomUUID()).quantity(250.0).build());
+
+        BulkCreateBatchResponse response = batchService.createBatches(List.of(
+                new CreateBatchRequest(Map.of(paddy.getId().toString(), 300.0), 250.0),
+                new CreateBatchRequest(Map.of(paddy.getId().toString(), 100.0), -1.0),
+                new CreateBatchRequest(Map.of(paddy.getId().toString(), 300.0), 250.0),
+                new CreateBatchRequest(Map.of(paddy.getId().toString(), 200.0), 150.0)
+        ), BulkMode.BEST_EFFORT);
+
+        assertEquals(2, response.getCreated());
+        assertEquals(2, response.getRejected());
+        assertTrue(response.getResults().get(0).isCreated());
+        assertEquals("Invalid produced quantity", response.getResults().get(1).getError());
+        assertFalse(response.getResults().get(2).isCreated());
+        assertTrue(response.getResults().get(3).isCreated());
+        verify(batchRepository, times(2)).save(any());
+        verify(paddyService, times(1)).updatePaddiesProcessedQuantity(Map.of(paddy.getId().toString(), 500.0));
+    }
+
+    @Test
+    void testCreateBatches_TooManyBatches_ThrowsException() {
+        ReflectionTestUtils.setField(batchService, "bulkMaxSize", 1);
+        List<CreateBatchRequest> batches = List.of(
+                new CreateBatchRequest(Map.of(UUID.randomUUID().toString(), 100.0), 80.0),
+                new CreateBatchRequest(Map.of(UUID.randomUUID().toString(), 100.0), 80.0)
+        );
+
+        assertThrows(IllegalArgumentException.class, () -> batchService.createBatches(batches, BulkMode.BEST_EFFORT));
+        verifyNoInteractions(batchRepository);
+    }
+
+    @Test
+    void testValidateBulkLimits_ZeroChunkSize_ThrowsException() {
+        ReflectionTestUtils.setField(batchService, "bulkChunkSize", 0);
+
+        assertThrows(IllegalArgumentException.class, () -> batchService.validateBulkLimits());
+    }
+
+    @Test
+    void testValidateBulkLimits_NegativeMaxSize_ThrowsException() {
+        ReflectionTestUtils.setField(batchService, "bulkMaxSize", -1);
+
+        assertThrows(IllegalArgumentException.class, () -> batchService.validateBulkLimits());
+    }
 }
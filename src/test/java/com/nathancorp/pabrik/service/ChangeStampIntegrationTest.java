@@ -0,0 +1,75 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.exception.PaddyNotAvailableForProcessingException;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.StampedTable;
+import com.nathancorp.pabrik.model.Storage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.config.location=classpath:/test.properties")
+class ChangeStampIntegrationTest {
+
+    @Autowired
+    private ChangeStampService changeStampService;
+
+    @Autowired
+    private PaddyService paddyService;
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private TransactionOperations transactionOperations;
+
+    @Test
+    void testListETag_ChangesOnlyForWrittenTables() {
+        String paddyETag = changeStampService.getListETag(StampedTable.PADDY);
+        String riceETag = changeStampService.getListETag(StampedTable.RICE);
+
+        paddyService.createPaddy(500.0, 20.0, "Supplier A");
+
+        assertTrue(paddyETag.startsWith("W/\""));
+        assertNotEquals(paddyETag, changeStampService.getListETag(StampedTable.PADDY));
+        assertEquals(riceETag, changeStampService.getListETag(StampedTable.RICE));
+    }
+
+    @Test
+    void testListETag_UnchangedWhenBatchIsRejected() {
+        Paddy paddy = paddyService.createPaddy(100.0, 20.0, "Supplier A");
+        String paddyETag = changeStampService.getListETag(StampedTable.PADDY);
+        String batchETag = changeStampService.getListETag(StampedTable.BATCH);
+
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> batchService.createBatch(Map.of(paddy.getId().toString(), 200.0), 150.0));
+
+        assertEquals(paddyETag, changeStampService.getListETag(StampedTable.PADDY));
+        assertEquals(batchETag, changeStampService.getListETag(StampedTable.BATCH));
+    }
+
+    @Test
+    void testCommitHooks_LockInventoryBeforeStampsWhateverTheRecordingOrder() {
+        List<Class<?>> hooks = transactionOperations.execute(status -> {
+            status.setRollbackOnly();
+            changeStampService.touch(StampedTable.PADDY);
+            inventoryService.record(Storage.STORAGE_1, 0, 1.0);
+            return TransactionSynchronizationManager.getSynchronizations().stream()
+                    .<Class<?>>map(hook -> hook.getClass().getEnclosingClass())
+                    .filter(owner -> owner == InventoryService.class || owner == ChangeStampService.class)
+                    .toList();
+        });
+
+        assertEquals(List.of(InventoryService.class, ChangeStampService.class), hooks);
+    }
+}
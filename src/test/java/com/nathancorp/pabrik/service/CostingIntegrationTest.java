@@ -0,0 +1,102 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.request.RiceSearchRequest;
+import com.nathancorp.pabrik.dto.response.BatchCostResponse;
+import com.nathancorp.pabrik.dto.response.BatchResponse;
+import com.nathancorp.pabrik.dto.response.RiceResponse;
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.model.Paddy;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.config.location=classpath:/test.properties")
+class CostingIntegrationTest {
+
+    @Autowired
+    private CostingService costingService;
+
+    @Autowired
+    private PaddyService paddyService;
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private RiceService riceService;
+
+    @Test
+    void testCreateBatch_CostsBatchAndRiceFromPaddyPrices() {
+        Paddy cheap = paddyService.createPaddy(500.0, 10.0, "Supplier A");
+        Paddy expensive = paddyService.createPaddy(500.0, 20.0, "Supplier B");
+
+        Batch batch = batchService.createBatch(
+                Map.of(cheap.getId().toString(), 100.0, expensive.getId().toString(), 300.0), 200.0);
+
+        BatchResponse costed = batchService.getBatchById(batch.getId().toString());
+        assertEquals(7000.0, costed.getInputCost(), 1e-9);
+        assertEquals(35.0, costed.getCostPerKg(), 1e-9);
+        assertEquals(35.0, riceOf(batch).getCostPerKg(), 1e-9);
+    }
+
+    @Test
+    void testUpdatePaddyPrice_RecostsOnlyBatchesOfThePaddy() {
+        Paddy corrected = paddyService.createPaddy(500.0, 10.0, "Supplier A");
+        Paddy other = paddyService.createPaddy(500.0, 20.0, "Supplier B");
+        Batch mixed = batchService.createBatch(
+                Map.of(corrected.getId().toString(), 100.0, other.getId().toString(), 100.0), 150.0);
+        Batch unrelated = batchService.createBatch(Map.of(other.getId().toString(), 100.0), 80.0);
+        // cached before the correction
+        BatchResponse before = batchService.getBatchById(mixed.getId().toString());
+
+        paddyService.updatePaddyPrice(corrected.getId().toString(), 13.0, null);
+
+        BatchResponse recosted = batchService.getBatchById(mixed.getId().toString());
+        assertEquals(3300.0, recosted.getInputCost(), 1e-9);
+        assertEquals(22.0, recosted.getCostPerKg(), 1e-9);
+        assertEquals(before.getVersion() + 1, recosted.getVersion());
+        assertEquals(22.0, riceOf(mixed).getCostPerKg(), 1e-9);
+        BatchResponse untouched = batchService.getBatchById(unrelated.getId().toString());
+        assertEquals(2000.0, untouched.getInputCost(), 1e-9);
+        assertEquals(unrelated.getVersion(), untouched.getVersion());
+    }
+
+    @Test
+    void testUpdateBatchStatus_RecostsOutput() {
+        Paddy paddy = paddyService.createPaddy(500.0, 10.0, "Supplier A");
+        Batch batch = batchService.createBatch(Map.of(paddy.getId().toString(), 300.0), 200.0);
+
+        batchService.updateBatchStatus(batch.getId().toString(), true, 250.0);
+
+        BatchResponse recosted = batchService.getBatchById(batch.getId().toString());
+        assertEquals(3000.0, recosted.getInputCost(), 1e-9);
+        assertEquals(12.0, recosted.getCostPerKg(), 1e-9);
+        assertEquals(12.0, riceOf(batch).getCostPerKg(), 1e-9);
+    }
+
+    @Test
+    void testCostReport_ReadsStoredCosts() {
+        Paddy paddy = paddyService.createPaddy(500.0, 10.0, "Supplier A");
+        Batch batch = batchService.createBatch(Map.of(paddy.getId().toString(), 100.0), 80.0);
+
+        BatchCostResponse cost = costingService.getCostReport(LocalDate.now(), LocalDate.now()).stream()
+                .filter(row -> row.getBatchId().equals(batch.getId()))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(1000.0, cost.getInputCost(), 1e-9);
+        assertEquals(12.5, cost.getCostPerKg(), 1e-9);
+        assertEquals(80.0, cost.getProducedQuantity(), 1e-9);
+    }
+
+    private RiceResponse riceOf(Batch batch) {
+        return riceService.searchRice(RiceSearchRequest.builder().batchId(batch.getId()).build(), PageRequest.of(0, 1))
+                .getContent().get(0);
+    }
+}
@@ -0,0 +1,85 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.response.RiceResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DetailCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DetailCache<RiceResponse> riceCache;
+
+    private AtomicInteger loads;
+
+    private Function<UUID, RiceResponse> loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        riceCache = new DetailCache<>(meterRegistry, "riceDetails", 100, Duration.ofMinutes(5));
+        loads = new AtomicInteger();
+        loader = id -> {
+            loads.incrementAndGet();
+            return RiceResponse.builder().id(id).quantity(100.0).build();
+        };
+    }
+
+    @Test
+    void testGet_LoadsOnceAndRecordsHits() {
+        UUID id = UUID.randomUUID();
+        RiceResponse first = riceCache.get(id, loader);
+        RiceResponse second = riceCache.get(id, loader);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "riceDetails").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "riceDetails").tag("result", "miss").functionCounter().count());
+        assertNotNull(meterRegistry.find("cache.evictions").tag("cache", "riceDetails").functionCounter());
+    }
+
+    @Test
+    void testInvalidate_InTransaction_EvictsAgainAfterCompletion() {
+        UUID id = UUID.randomUUID();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            riceCache.get(id, loader);
+            riceCache.invalidate(id);
+            // a concurrent read before the commit caches the old state again
+            riceCache.get(id, loader);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        riceCache.get(id, loader);
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testGet_EvictedWhileLoading_DoesNotCacheLoadedValue() {
+        UUID id = UUID.randomUUID();
+        // a write commits and evicts while the old state is being read
+        RiceResponse loaded = riceCache.get(id, riceId -> {
+            RiceResponse old = loader.apply(riceId);
+            riceCache.invalidate(riceId);
+            return old;
+        });
+        RiceResponse reloaded = riceCache.get(id, loader);
+
+        assertNotSame(loaded, reloaded);
+        assertEquals(2, loads.get());
+    }
+}
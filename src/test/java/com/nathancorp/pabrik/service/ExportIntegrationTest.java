@@ -0,0 +1,133 @@
+package com.nathancorp.pabrik.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathancorp.pabrik.dto.request.ExportFormat;
+import com.nathancorp.pabrik.exception.ExportCapacityExceededException;
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.repository.PaddyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.config.location=classpath:/test.properties")
+class ExportIntegrationTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private PaddyService paddyService;
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private PaddyRepository paddyRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testExportPaddies_WritesQuotedCsvRowsInRange() {
+        String supplier = "Supplier, \"" + UUID.randomUUID() + "\"";
+        LocalDateTime from = LocalDateTime.now().minusSeconds(1);
+        Paddy first = paddyService.createPaddy(500.0, 10.0, supplier);
+        Paddy second = paddyService.createPaddy(300.0, 12.0, supplier);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long rows = exportService.exportPaddies(from, null, ExportFormat.CSV, output);
+        ByteArrayOutputStream before = new ByteArrayOutputStream();
+        long rowsBefore = exportService.exportPaddies(null, from, ExportFormat.CSV, before);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        String quoted = "\"" + supplier.replace("\"", "\"\"") + "\"";
+        List<String> exported = Arrays.stream(lines).filter(line -> line.contains(quoted)).toList();
+        assertEquals("id,quantity,price,supplier,storage,purchaseDate,processedQuantity,remainingQuantity,version",
+                lines[0]);
+        assertEquals(rows, lines.length - 1);
+        assertEquals(2, exported.size());
+        assertTrue(exported.get(0).startsWith(first.getId() + ",500.0,10.0," + quoted + ","));
+        assertTrue(exported.get(1).startsWith(second.getId() + ",300.0,12.0," + quoted + ","));
+        assertFalse(before.toString(StandardCharsets.UTF_8).contains(quoted));
+        assertEquals(rowsBefore, before.toString(StandardCharsets.UTF_8).split("\n").length - 1);
+    }
+
+    @Test
+    void testExportRice_WritesOneJsonObjectPerLine() throws Exception {
+        LocalDateTime from = LocalDateTime.now().minusSeconds(1);
+        Paddy paddy = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+        Batch batch = batchService.createBatch(Map.of(paddy.getId().toString(), 100.0), 80.0);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long rows = exportService.exportRice(from, null, ExportFormat.NDJSON, output);
+
+        List<JsonNode> rice = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            rice.add(objectMapper.readTree(line));
+        }
+        assertEquals(rows, rice.size());
+        JsonNode produced = rice.stream()
+                .filter(node -> batch.getId().toString().equals(node.path("batchId").asText()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(80.0, produced.get("quantity").asDouble());
+        assertTrue(produced.hasNonNull("id"));
+    }
+
+    @Test
+    void testExportPaddies_WithoutRangeExportsEveryDate() {
+        String supplier = "Supplier " + UUID.randomUUID();
+        Paddy old = paddyService.newPaddy(200.0, 10.0, supplier);
+        old.setPurchaseDate(LocalDateTime.of(1965, 3, 1, 0, 0));
+        // used up, so it stays out of the allocations of other tests
+        old.setProcessedQuantity(200.0);
+        old.setRemainingQuantity(0.0);
+        paddyRepository.save(old);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exportService.exportPaddies(null, null, ExportFormat.CSV, output);
+
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains(old.getId().toString()));
+    }
+
+    @Test
+    void testAcquireSlot_RejectsBeyondMaxConcurrent() {
+        ExportService.Slot first = exportService.acquireSlot();
+        ExportService.Slot second = exportService.acquireSlot();
+
+        assertThrows(ExportCapacityExceededException.class, exportService::acquireSlot);
+
+        // closing twice gives the slot back once
+        first.close();
+        first.close();
+        ExportService.Slot third = exportService.acquireSlot();
+        assertThrows(ExportCapacityExceededException.class, exportService::acquireSlot);
+        second.close();
+        third.close();
+    }
+
+    @Test
+    void testExportBatches_EmptyRangeWritesOnlyHeader() {
+        LocalDateTime from = LocalDateTime.of(1990, 1, 1, 0, 0);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long rows = exportService.exportBatches(from, from.plusDays(1), ExportFormat.CSV, output);
+
+        assertEquals(0, rows);
+        assertEquals("id,quantity,storage,processingDate,processed,producedQuantity,version,inputCost,costPerKg\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+}
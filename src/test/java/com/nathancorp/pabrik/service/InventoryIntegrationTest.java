@@ -0,0 +1,91 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.response.InventorySummaryResponse;
+import com.nathancorp.pabrik.exception.PaddyNotAvailableForProcessingException;
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.Rice;
+import com.nathancorp.pabrik.model.Storage;
+import com.nathancorp.pabrik.repository.RiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.config.location=classpath:/test.properties")
+class InventoryIntegrationTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private PaddyService paddyService;
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private RiceService riceService;
+
+    @Autowired
+    private RiceRepository riceRepository;
+
+    @Test
+    void testSummary_FollowsCreateConsumeAndDelete() {
+        // other tests write rows directly through the repositories, start from a repaired summary
+        Map<Storage, InventorySummaryResponse> before = byStorage(inventoryService.rebuild());
+
+        Paddy paddy = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+        Batch batch = batchService.createBatch(Map.of(paddy.getId().toString(), 200.0), 150.0);
+        Rice rice = riceService.createRice(40.0);
+        riceService.deleteRiceById(rice.getId().toString());
+
+        Map<Storage, InventorySummaryResponse> after = byStorage(inventoryService.getSummary());
+        assertDelta(before, after, Storage.STORAGE_1, 1, 300.0);
+        assertDelta(before, after, Storage.STORAGE_2, 1, batch.getQuantity());
+        assertDelta(before, after, Storage.STORAGE_3, 1, 150.0);
+
+        assertEquals(after, byStorage(inventoryService.rebuild()));
+    }
+
+    @Test
+    void testSummary_UnchangedWhenBatchRollsBack() {
+        Paddy paddy = paddyService.createPaddy(100.0, 20.0, "Supplier A");
+        List<InventorySummaryResponse> before = inventoryService.getSummary();
+
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> batchService.createBatch(Map.of(paddy.getId().toString(), 200.0), 150.0));
+
+        assertEquals(before, inventoryService.getSummary());
+    }
+
+    @Test
+    void testRebuild_RepairsDrift() {
+        inventoryService.rebuild();
+        // written around the service, so the summary misses it
+        riceRepository.save(Rice.builder().quantity(75.0).storage(Storage.STORAGE_3).build());
+        InventorySummaryResponse drifted = byStorage(inventoryService.getSummary()).get(Storage.STORAGE_3);
+
+        InventorySummaryResponse rebuilt = byStorage(inventoryService.rebuild()).get(Storage.STORAGE_3);
+
+        assertEquals(drifted.getItemCount() + 1, rebuilt.getItemCount());
+        assertEquals(drifted.getQuantity() + 75.0, rebuilt.getQuantity(), 1e-9);
+    }
+
+    private static void assertDelta(Map<Storage, InventorySummaryResponse> before,
+                                    Map<Storage, InventorySummaryResponse> after,
+                                    Storage storage, long itemCount, double quantity) {
+        assertEquals(before.get(storage).getItemCount() + itemCount, after.get(storage).getItemCount());
+        assertEquals(before.get(storage).getQuantity() + quantity, after.get(storage).getQuantity(), 1e-9);
+    }
+
+    private static Map<Storage, InventorySummaryResponse> byStorage(List<InventorySummaryResponse> summary) {
+        return summary.stream().collect(Collectors.toMap(InventorySummaryResponse::getStorage, Function.identity()));
+    }
+}
@@ -0,0 +1,102 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.response.BatchResponse;
+import com.nathancorp.pabrik.dto.response.CursorPage;
+import com.nathancorp.pabrik.dto.response.PaddyResponse;
+import com.nathancorp.pabrik.dto.response.RiceResponse;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.Storage;
+import com.nathancorp.pabrik.repository.PaddyRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.config.location=classpath:/test.properties",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class KeysetPaginationIntegrationTest {
+
+    @Autowired
+    private PaddyService paddyService;
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private RiceService riceService;
+
+    @Autowired
+    private PaddyRepository paddyRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void testGetPaddiesAfter_WalksEveryPaddyOnceWithoutCountQuery() {
+        // equal purchase dates are ordered by id
+        LocalDateTime purchaseDate = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < 7; i++) {
+            paddyRepository.save(Paddy.builder().quantity(500.0).price(20.0).storage(Storage.STORAGE_1)
+                    .purchaseDate(purchaseDate).build());
+        }
+        for (int i = 0; i < 5; i++) {
+            paddyService.createPaddy(500.0, 20.0, "Supplier A");
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        List<PaddyResponse> paddies = walk(paddyService::getPaddiesAfter, 4);
+        long pages = (paddies.size() + 3) / 4;
+
+        assertEquals(paddyRepository.count(), paddies.size());
+        assertEquals(paddies.size(), new HashSet<>(paddies.stream().map(PaddyResponse::getId).toList()).size());
+        assertEquals(paddies, paddies.stream().sorted(Comparator.comparing(PaddyResponse::getPurchaseDate)
+                .thenComparing(PaddyResponse::getId).reversed()).toList());
+        // one query per page, the last page may be empty when the rows divide evenly
+        assertTrue(statistics.getPrepareStatementCount() <= pages + 1);
+    }
+
+    @Test
+    void testGetBatchesAfter_AndGetRiceAfter() {
+        for (int i = 0; i < 5; i++) {
+            Paddy paddy = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+            batchService.createBatch(Map.of(paddy.getId().toString(), 100.0), 80.0);
+        }
+
+        List<BatchResponse> batches = walk(batchService::getBatchesAfter, 2);
+        List<RiceResponse> rice = walk(riceService::getRiceAfter, 3);
+
+        assertTrue(batches.size() >= 5);
+        assertEquals(batches.size(), new HashSet<>(batches.stream().map(BatchResponse::getId).toList()).size());
+        assertTrue(batches.stream().noneMatch(batch -> batch.getPaddies().isEmpty()));
+        assertTrue(rice.size() >= 5);
+        assertEquals(rice.size(), new HashSet<>(rice.stream().map(RiceResponse::getId).toList()).size());
+    }
+
+    private static <T> List<T> walk(BiFunction<String, Integer, CursorPage<T>> pageLoader, int size) {
+        List<T> rows = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<T> page = pageLoader.apply(cursor, size);
+            assertTrue(page.getContent().size() <= size);
+            rows.addAll(page.getContent());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return rows;
+    }
+}
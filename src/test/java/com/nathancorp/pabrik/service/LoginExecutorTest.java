@@ -0,0 +1,68 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.exception.LoginCapacityExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LoginExecutor loginExecutor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loginExecutor = new LoginExecutor(meterRegistry, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loginExecutor.destroy();
+    }
+
+    @Test
+    void testSubmit() throws Exception {
+        CompletableFuture<String> result = loginExecutor.submit("authenticate", () -> "token");
+
+        assertEquals("token", result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("pabrik.login.duration").tag("operation", "authenticate").timer().count());
+    }
+
+    @Test
+    void testSubmit_Saturated_ThrowsException() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> running = loginExecutor.submit("authenticate", () -> {
+            started.countDown();
+            await(release);
+            return "running";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = loginExecutor.submit("authenticate", () -> "queued");
+
+        assertThrows(LoginCapacityExceededException.class,
+                () -> loginExecutor.submit("authenticate", () -> "rejected"));
+        assertEquals(1.0, meterRegistry.get("executor.queued").tag("name", "login").gauge().value());
+
+        release.countDown();
+        assertEquals("running", running.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.nathancorp.pabrik.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nathancorp.pabrik.dto.request.PaddyImportFormat;
+import com.nathancorp.pabrik.dto.response.PaddyImportResponse;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.repository.PaddyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PaddyImportServiceTest {
+
+    @Mock
+    private PaddyRepository paddyRepository;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private ChangeStampService changeStampService;
+
+    @Mock
+    private CostingService costingService;
+
+    @Mock
+    private AvailablePaddyIndex availablePaddyIndex;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private Session session;
+
+    private PaddyImportService paddyImportService;
+
+    private final List<List<Paddy>> savedChunks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        when(paddyRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            savedChunks.add(new ArrayList<>(invocation.<List<Paddy>>getArgument(0)));
+            return invocation.getArgument(0);
+        });
+        PaddyService paddyService = new PaddyService(paddyRepository, inventoryService,
+                new DetailCache<>(new SimpleMeterRegistry(), "paddyDetails", 100, Duration.ofMinutes(1)), changeStampService,
+                costingService, new OptimisticLockRetry(TransactionOperations.withoutTransaction(), 3, Duration.ZERO, Duration.ZERO),
+                availablePaddyIndex);
+        paddyImportService = new PaddyImportService(paddyService, paddyRepository, inventoryService, changeStampService,
+                availablePaddyIndex, entityManager, TransactionOperations.withoutTransaction(), new ObjectMapper(), 2, 1);
+    }
+
+    @Test
+    void testImportPaddies_Csv() {
+        String csv = """
+                supplier,price,quantity
+                "Supplier, A",20.0,500.0
+                Supplier B,21.5,300.0
+                Supplier C,-1,300.0
+
+                Supplier D,22.0,abc
+                Supplier E,19.0,100.0
+                """;
+
+        PaddyImportResponse response = paddyImportService.importPaddies(stream(csv), PaddyImportFormat.CSV);
+
+        assertEquals(3, response.getImported());
+        assertEquals(2, response.getRejected());
+        assertEquals(1, response.getRejectedLines().size());
+        assertEquals(4, response.getRejectedLines().get(0).getLine());
+        assertTrue(response.isRejectedLinesTruncated());
+        assertEquals(2, savedChunks.size());
+        assertEquals("Supplier, A", savedChunks.get(0).get(0).getSupplier());
+        assertEquals(500.0, savedChunks.get(0).get(0).getQuantity());
+        assertEquals(21.5, savedChunks.get(0).get(1).getPrice());
+        verify(entityManager, times(2)).clear();
+        verify(session, times(2)).setJdbcBatchSize(2);
+    }
+
+    @Test
+    void testImportPaddies_CsvWithoutHeader() {
+        PaddyImportResponse response = paddyImportService.importPaddies(stream("500.0,20.0,Supplier A\n"), PaddyImportFormat.CSV);
+
+        assertEquals(1, response.getImported());
+        assertEquals("Supplier A", savedChunks.get(0).get(0).getSupplier());
+    }
+
+    @Test
+    void testImportPaddies_Ndjson() {
+        String ndjson = """
+                {"quantity": 500.0, "price": 20.0, "supplier": "Supplier A"}
+                {"quantity": 0, "price": 20.0, "supplier": "Supplier B"}
+                {"quantity": 300.0, "price": 20.0
+                """;
+
+        PaddyImportResponse response = paddyImportService.importPaddies(stream(ndjson), PaddyImportFormat.NDJSON);
+
+        assertEquals(1, response.getImported());
+        assertEquals(2, response.getRejected());
+        assertEquals("Invalid quantity, should be greater than 0", response.getRejectedLines().get(0).getError());
+        verify(paddyRepository, times(1)).saveAll(anyList());
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
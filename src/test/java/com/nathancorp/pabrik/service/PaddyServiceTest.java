@@ -3,25 +3,33 @@ package com.nathancorp.pabrik.service;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import com.nathancorp.pabrik.dto.response.CursorPage;
+import com.nathancorp.pabrik.dto.response.PaddyResponse;
+import com.nathancorp.pabrik.exception.InvalidCursorException;
 import com.nathancorp.pabrik.exception.InvalidPriceException;
 import com.nathancorp.pabrik.exception.InvalidQuantityException;
+import com.nathancorp.pabrik.exception.OptimisticLockConflictException;
 import com.nathancorp.pabrik.exception.PaddyNotAvailableForProcessingException;
-import com.nathancorp.pabrik.model.Batch;
 import com.nathancorp.pabrik.model.Paddy;
 import com.nathancorp.pabrik.model.Storage;
 import com.nathancorp.pabrik.repository.PaddyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -30,6 +38,26 @@ class PaddyServiceTest {
     @Mock
     private PaddyRepository paddyRepository;
 
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private ChangeStampService changeStampService;
+
+    @Mock
+    private CostingService costingService;
+
+    @Mock
+    private AvailablePaddyIndex availablePaddyIndex;
+
+    @Spy
+    private DetailCache<PaddyResponse> paddyCache =
+            new DetailCache<>(new SimpleMeterRegistry(), "paddyDetails", 100, Duration.ofMinutes(1));
+
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry =
+            new OptimisticLockRetry(TransactionOperations.withoutTransaction(), 3, Duration.ZERO, Duration.ZERO);
+
     @InjectMocks
     private PaddyService paddyService;
 
@@ -41,7 +69,7 @@ class PaddyServiceTest {
     @Test
     void testCreatePaddy() {
         Paddy mockPaddy = new Paddy(UUID.randomUUID(), 500.0, 20.0,
-                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 0.0);
+                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 0.0, 500.0, 0L);
         when(paddyRepository.save(any(Paddy.class))).thenReturn(mockPaddy);
 
         Paddy createdPaddy = paddyService.createPaddy(500.0, 20.0, "Supplier A");
@@ -52,31 +80,52 @@ class PaddyServiceTest {
     @Test
     void testDeletePaddy() {
         UUID paddyId = UUID.randomUUID();
-        when(paddyRepository.existsById(paddyId)).thenReturn(true);
+        Paddy mockPaddy = new Paddy(paddyId, 500.0, 20.0,
+                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 100.0, 400.0, 0L);
+        when(paddyRepository.findById(paddyId)).thenReturn(Optional.of(mockPaddy));
 
         paddyService.deletePaddy(paddyId);
-        verify(paddyRepository, times(1)).deleteById(paddyId);
+        verify(paddyRepository, times(1)).delete(mockPaddy);
+        verify(inventoryService, times(1)).record(Storage.STORAGE_1, -1, -400.0);
     }
 
     @Test
     void testDeletePaddy_NotFound() {
         UUID paddyId = UUID.randomUUID();
-        when(paddyRepository.existsById(paddyId)).thenReturn(false);
+        when(paddyRepository.findById(paddyId)).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class, () -> paddyService.deletePaddy(paddyId));
+        verify(inventoryService, never()).record(any(), anyLong(), anyDouble());
     }
 
     @Test
     void testGetPaddyById() {
         UUID paddyId = UUID.randomUUID();
         Paddy mockPaddy = new Paddy(paddyId, 500.0, 20.0,
-                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 0.0);
+                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 0.0, 500.0, 0L);
         when(paddyRepository.findById(paddyId)).thenReturn(Optional.of(mockPaddy));
 
-        Paddy fetchedPaddy = paddyService.getPaddyById(paddyId.toString());
+        PaddyResponse fetchedPaddy = paddyService.getPaddyById(paddyId.toString());
         assertEquals(mockPaddy.getId(), fetchedPaddy.getId());
     }
 
+    @Test
+    void testGetPaddyById_ServedFromCacheUntilConsumed() {
+        UUID paddyId = UUID.randomUUID();
+        Paddy mockPaddy = new Paddy(paddyId, 500.0, 20.0,
+                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 0.0, 500.0, 0L);
+        when(paddyRepository.findById(paddyId)).thenReturn(Optional.of(mockPaddy));
+        when(paddyRepository.incrementProcessedQuantities(any())).thenReturn(new int[]{1});
+
+        paddyService.getPaddyById(paddyId.toString());
+        paddyService.getPaddyById(paddyId.toString());
+        verify(paddyRepository, times(1)).findById(paddyId);
+
+        paddyService.updatePaddiesProcessedQuantity(Map.of(paddyId.toString(), 100.0));
+        paddyService.getPaddyById(paddyId.toString());
+        verify(paddyRepository, times(2)).findById(paddyId);
+    }
+
     @Test
     void testGetPaddyById_NotFound() {
         UUID paddyId = UUID.randomUUID();
@@ -88,9 +137,9 @@ class PaddyServiceTest {
     @Test
     void testGetAllAvailablePaddies() {
         Paddy paddy1 = new Paddy(UUID.randomUUID(), 500.0, 20.0,
-                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 0.0);
+                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 0.0, 500.0, 0L);
         Paddy paddy2 = new Paddy(UUID.randomUUID(), 1000.0, 25.0,
-                "Supplier B", Storage.STORAGE_1, LocalDateTime.now(), 100);
+                "Supplier B", Storage.STORAGE_1, LocalDateTime.now(), 100, 900.0, 0L);
         Pageable pageable = PageRequest.of(0, 10);
         when(paddyRepository.findAvailablePaddies(pageable)).thenReturn(new PageImpl<>(List.of(paddy1, paddy2)));
 
@@ -99,41 +148,71 @@ class PaddyServiceTest {
     }
 
     @Test
-    void testGetAvailablePaddyByIdForBatch() {
+    void testGetAvailablePaddiesForBatch() {
+        UUID paddyId1 = UUID.randomUUID();
+        UUID paddyId2 = UUID.randomUUID();
+        Paddy mockPaddy1 = new Paddy(paddyId1, 500.0, 20.0,
+                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 100, 400.0, 0L);
+        Paddy mockPaddy2 = new Paddy(paddyId2, 1000.0, 25.0,
+                "Supplier B", Storage.STORAGE_1, LocalDateTime.now(), 0.0, 1000.0, 0L);
+        when(paddyRepository.findAllById(any())).thenReturn(List.of(mockPaddy2, mockPaddy1));
+
+        Map<String, Double> paddyAndQuantity = new LinkedHashMap<>();
+        paddyAndQuantity.put(paddyId1.toString(), 300.0);
+        paddyAndQuantity.put(paddyId2.toString(), 1000.0);
+        List<Paddy> availablePaddies = paddyService.getAvailablePaddiesForBatch(paddyAndQuantity);
+
+        assertEquals(List.of(mockPaddy1, mockPaddy2), availablePaddies);
+        verify(paddyRepository, times(1)).findAllById(Set.of(paddyId1, paddyId2));
+        verify(paddyRepository, never()).findById(any());
+    }
+
+    @Test
+    void testGetAvailablePaddiesForBatch_NotAvailable() {
         UUID paddyId = UUID.randomUUID();
         Paddy mockPaddy = new Paddy(paddyId, 500.0, 20.0,
-                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 100);
-        when(paddyRepository.findById(paddyId)).thenReturn(Optional.of(mockPaddy));
+                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 500.0, 0.0, 0L);
+        when(paddyRepository.findAllById(any())).thenReturn(List.of(mockPaddy));
 
-        Paddy availablePaddy = paddyService.getAvailablePaddyByIdForBatch(paddyId.toString(), 300.0);
-        assertEquals(mockPaddy, availablePaddy);
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> paddyService.getAvailablePaddiesForBatch(Map.of(paddyId.toString(), 300.0)));
     }
 
     @Test
-    void testGetAvailablePaddyByIdForBatch_NotAvailable() {
+    void testGetAvailablePaddiesForBatch_NotFound() {
         UUID paddyId = UUID.randomUUID();
-        Paddy mockPaddy = new Paddy(paddyId, 500.0, 20.0,
-                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 500.0);
-        when(paddyRepository.findById(paddyId)).thenReturn(Optional.of(mockPaddy));
+        when(paddyRepository.findAllById(any())).thenReturn(List.of());
 
         assertThrows(PaddyNotAvailableForProcessingException.class,
-                () -> paddyService.getAvailablePaddyByIdForBatch(paddyId.toString(), 300.0));
+                () -> paddyService.getAvailablePaddiesForBatch(Map.of(paddyId.toString(), 300.0)));
     }
 
     @Test
     void testUpdatePaddiesProcessedQuantity() {
         UUID paddyId = UUID.randomUUID();
-        Paddy mockPaddy = new Paddy(paddyId, 500.0, 20.0, "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 100);
-        Batch mockBatch = new Batch(UUID.randomUUID(), 250.0, Storage.STORAGE_2, LocalDateTime.now(),
-                true, new ArrayList<>(), new ArrayList<>(), 200.0, null);
-
-        when(paddyRepository.findById(paddyId)).thenReturn(Optional.of(mockPaddy));
+        when(paddyRepository.incrementProcessedQuantities(Map.of(paddyId, 200.0))).thenReturn(new int[]{1});
 
         Map<String, Double> paddyAndQuantity = Map.of(paddyId.toString(), 200.0);
-        paddyService.updatePaddiesProcessedQuantity(paddyAndQuantity, mockBatch);
+        paddyService.updatePaddiesProcessedQuantity(paddyAndQuantity);
 
-        assertEquals(300.0, mockPaddy.getProcessedQuantity());
-        verify(paddyRepository, times(1)).save(mockPaddy);
+        verify(paddyRepository, times(1)).incrementProcessedQuantities(Map.of(paddyId, 200.0));
+        verify(paddyRepository, never()).findById(any());
+        verify(paddyRepository, never()).save(any());
+    }
+
+    @Test
+    void testUpdatePaddiesProcessedQuantity_NotAvailable() {
+        UUID paddyId1 = UUID.randomUUID();
+        UUID paddyId2 = UUID.randomUUID();
+        when(paddyRepository.incrementProcessedQuantities(any())).thenReturn(new int[]{1, 0});
+
+        Map<String, Double> paddyAndQuantity = new LinkedHashMap<>();
+        paddyAndQuantity.put(paddyId1.toString(), 200.0);
+        paddyAndQuantity.put(paddyId2.toString(), 300.0);
+
+        PaddyNotAvailableForProcessingException exception = assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> paddyService.updatePaddiesProcessedQuantity(paddyAndQuantity));
+        assertTrue(exception.getMessage().contains(paddyId2.toString()));
     }
 
     @Test
@@ -152,20 +231,85 @@ class PaddyServiceTest {
     void testDeletePaddy_WithDependencies() {
         UUID paddyId = UUID.randomUUID();
         // Assuming paddies with dependencies should not be deletable
-        when(paddyRepository.existsById(paddyId)).thenReturn(true);
-        doThrow(new DataIntegrityViolationException("Cannot delete due to dependencies")).when(paddyRepository).deleteById(paddyId);
+        Paddy mockPaddy = new Paddy(paddyId, 500.0, 20.0,
+                "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 100.0, 400.0, 0L);
+        when(paddyRepository.findById(paddyId)).thenReturn(Optional.of(mockPaddy));
+        doThrow(new DataIntegrityViolationException("Cannot delete due to dependencies")).when(paddyRepository).delete(mockPaddy);
 
         Exception exception = assertThrows(DataIntegrityViolationException.class, () -> paddyService.deletePaddy(paddyId));
         assertEquals("Cannot delete due to dependencies", exception.getMessage());
     }
 
     @Test
-    void testGetAvailablePaddyByIdForBatch_InvalidQuantity() {
+    void testGetAvailablePaddiesForBatch_InvalidQuantity() {
         UUID paddyId = UUID.randomUUID();
-        Paddy mockPaddy = new Paddy(paddyId, 500.0, 20.0, "Supplier A", Storage.STORAGE_1, LocalDateTime.now(),  460);
-        when(paddyRepository.findById(paddyId)).thenReturn(Optional.of(mockPaddy));
+        Paddy mockPaddy = new Paddy(paddyId, 500.0, 20.0, "Supplier A", Storage.STORAGE_1, LocalDateTime.now(),  460, 40.0, 0L);
+        when(paddyRepository.findAllById(any())).thenReturn(List.of(mockPaddy));
+
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> paddyService.getAvailablePaddiesForBatch(Map.of(paddyId.toString(), 50.0)));
+    }
+
+
+    @Test
+    void testGetPaddiesAfter() {
+        LocalDateTime purchaseDate = LocalDateTime.now();
+        List<Paddy> rows = List.of(
+                new Paddy(UUID.randomUUID(), 500.0, 20.0, "Supplier A", Storage.STORAGE_1, purchaseDate, 0.0, 500.0, 0L),
+                new Paddy(UUID.randomUUID(), 500.0, 20.0, "Supplier B", Storage.STORAGE_1, purchaseDate.minusDays(1), 0.0, 500.0, 0L),
+                new Paddy(UUID.randomUUID(), 500.0, 20.0, "Supplier C", Storage.STORAGE_1, purchaseDate.minusDays(2), 0.0, 500.0, 0L)
+        );
+        when(paddyRepository.findFirstKeysetPage(Limit.of(3))).thenReturn(rows);
+        when(paddyRepository.findKeysetPageAfter(rows.get(1).getPurchaseDate(), rows.get(1).getId(), Limit.of(3)))
+                .thenReturn(List.of(rows.get(2)));
+
+        CursorPage<PaddyResponse> firstPage = paddyService.getPaddiesAfter(null, 2);
+        CursorPage<PaddyResponse> lastPage = paddyService.getPaddiesAfter(firstPage.getNextCursor(), 2);
+
+        assertEquals(2, firstPage.getContent().size());
+        assertNotNull(firstPage.getNextCursor());
+        assertEquals(rows.get(2).getId(), lastPage.getContent().get(0).getId());
+        assertNull(lastPage.getNextCursor());
+        verify(paddyRepository, never()).count();
+    }
+
+    @Test
+    void testGetPaddiesAfter_InvalidCursor_ThrowsException() {
+        assertThrows(InvalidCursorException.class, () -> paddyService.getPaddiesAfter("not-a-cursor", 2));
+        assertThrows(InvalidCursorException.class, () -> paddyService.getPaddiesAfter(null, 0));
+        verifyNoInteractions(paddyRepository);
+    }
+
+    @Test
+    void testUpdatePaddyPrice_RecostsBatches() {
+        Paddy paddy = new Paddy(UUID.randomUUID(), 500.0, 20.0, "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 100.0, 400.0, 3L);
+        when(paddyRepository.findById(paddy.getId())).thenReturn(Optional.of(paddy));
+        when(paddyRepository.saveAndFlush(paddy)).thenReturn(paddy);
+
+        Paddy updated = paddyService.updatePaddyPrice(paddy.getId().toString(), 22.0, 3L);
 
-        assertThrows(PaddyNotAvailableForProcessingException.class, () -> paddyService.getAvailablePaddyByIdForBatch(paddyId.toString(), 50.0));
+        assertEquals(22.0, updated.getPrice());
+        verify(paddyRepository).saveAndFlush(paddy);
+        verify(paddyCache).invalidate(paddy.getId());
+        verify(costingService).recostBatchesOfPaddy(paddy.getId());
     }
 
+    @Test
+    void testUpdatePaddyPrice_InvalidPrice_ThrowsException() {
+        assertThrows(InvalidPriceException.class, () -> paddyService.updatePaddyPrice(UUID.randomUUID().toString(), 0.0, null));
+        verifyNoInteractions(paddyRepository, costingService);
+    }
+
+    @Test
+    void testUpdatePaddyPrice_StaleVersion_ThrowsException() {
+        Paddy paddy = new Paddy(UUID.randomUUID(), 500.0, 20.0, "Supplier A", Storage.STORAGE_1, LocalDateTime.now(), 0.0, 500.0, 4L);
+        when(paddyRepository.findById(paddy.getId())).thenReturn(Optional.of(paddy));
+
+        assertThrows(OptimisticLockConflictException.class,
+                () -> paddyService.updatePaddyPrice(paddy.getId().toString(), 22.0, 3L));
+
+        assertEquals(20.0, paddy.getPrice());
+        verify(paddyRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(costingService);
+    }
 }
@@ -1,24 +1,29 @@
 package com.nathancorp.pabrik.service;
 
+import com.nathancorp.pabrik.dto.response.RiceResponse;
 import com.nathancorp.pabrik.exception.InvalidQuantityException;
 import com.nathancorp.pabrik.model.Batch;
 import com.nathancorp.pabrik.model.Rice;
 import com.nathancorp.pabrik.model.RiceType;
 import com.nathancorp.pabrik.model.Storage;
 import com.nathancorp.pabrik.repository.RiceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,6 +35,16 @@ public class RiceServiceTest {
     @Mock
     private RiceRepository riceRepository;
 
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private ChangeStampService changeStampService;
+
+    @Spy
+    private DetailCache<RiceResponse> riceCache =
+            new DetailCache<>(new SimpleMeterRegistry(), "riceDetails", 100, Duration.ofMinutes(1));
+
     @InjectMocks
     private RiceService riceService;
 
@@ -84,10 +99,10 @@ public class RiceServiceTest {
     @Test
     void testGetAllRice() {
         Pageable pageable= PageRequest.of(0, 5);
-        when(riceRepository.findAll(pageable))
-                .thenReturn(new PageImpl<>(List.of(mockRice1, mockRice2), pageable, 2));
+        when(riceRepository.findAllRice(pageable))
+                .thenReturn(new PageImpl<>(List.of(RiceResponse.from(mockRice1), RiceResponse.from(mockRice2)), pageable, 2));
 
-        Page<Rice> riceList = riceService.getAllRice(pageable);
+        Page<RiceResponse> riceList = riceService.getAllRice(pageable);
 
         assertEquals(2, riceList.getTotalElements());
     }
@@ -96,9 +111,9 @@ public class RiceServiceTest {
     void testGetRiceById() {
         when(riceRepository.findById(mockRice1.getId())).thenReturn(java.util.Optional.of(mockRice1));
 
-        Rice rice = riceService.getRiceById(mockRice1.getId().toString());
+        RiceResponse rice = riceService.getRiceById(mockRice1.getId().toString());
 
-        assertEquals(mockRice1, rice);
+        assertEquals(RiceResponse.from(mockRice1), rice);
     }
 
     @Test
@@ -138,19 +153,20 @@ public class RiceServiceTest {
 
     @Test
     void testDeleteRiceByIdSuccess() {
-        when(riceRepository.existsById(any())).thenReturn(true);
+        when(riceRepository.findById(mockRice1.getId())).thenReturn(Optional.of(mockRice1));
 
         riceService.deleteRiceById(mockRice1.getId().toString());
 
-        verify(riceRepository, times(1)).deleteById(mockRice1.getId());
+        verify(riceRepository, times(1)).delete(mockRice1);
+        verify(inventoryService, times(1)).record(mockRice1.getStorage(), -1, -mockRice1.getQuantity());
     }
 
     @Test
     void testDeleteRiceByIdFail() {
-        when(riceRepository.existsById(any())).thenReturn(false);
+        when(riceRepository.findById(any())).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class, () -> riceService.deleteRiceById(mockRice1.getId().toString()));
-        verify(riceRepository, times(0)).deleteById(mockRice1.getId());
+        verify(riceRepository, times(0)).delete(mockRice1);
     }
 
 }
@@ -0,0 +1,138 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.request.BatchSearchRequest;
+import com.nathancorp.pabrik.dto.request.PaddySearchRequest;
+import com.nathancorp.pabrik.dto.request.RiceSearchRequest;
+import com.nathancorp.pabrik.dto.response.BatchResponse;
+import com.nathancorp.pabrik.dto.response.RiceResponse;
+import com.nathancorp.pabrik.exception.UnsupportedSearchFilterException;
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.Storage;
+import com.nathancorp.pabrik.repository.BatchSpecifications;
+import com.nathancorp.pabrik.repository.PaddySpecifications;
+import com.nathancorp.pabrik.repository.RiceSpecifications;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.config.location=classpath:/test.properties")
+class SearchIntegrationTest {
+
+    @Autowired
+    private PaddyService paddyService;
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private RiceService riceService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void testIndexedFilters_EachHasAnIndexLeadingWithItsColumns() throws SQLException {
+        assertIndexes("paddy", PaddySpecifications.INDEXED_FILTERS);
+        assertIndexes("batch", BatchSpecifications.INDEXED_FILTERS);
+        assertIndexes("rice", RiceSpecifications.INDEXED_FILTERS);
+    }
+
+    @Test
+    void testSearchPaddies_AppliesEveryFilter() {
+        String supplier = "Supplier " + UUID.randomUUID();
+        Paddy cheap = paddyService.createPaddy(500.0, 10.0, supplier);
+        Paddy expensive = paddyService.createPaddy(500.0, 30.0, supplier);
+        paddyService.createPaddy(500.0, 10.0, "Supplier " + UUID.randomUUID());
+
+        Page<Paddy> bySupplier = paddyService.searchPaddies(
+                PaddySearchRequest.builder().supplier(supplier).build(), PageRequest.of(0, 10));
+        Page<Paddy> bySupplierSince = paddyService.searchPaddies(
+                PaddySearchRequest.builder().supplier(supplier).purchasedFrom(LocalDateTime.now().plusHours(1)).build(),
+                PageRequest.of(0, 10));
+        Page<Paddy> byPrice = paddyService.searchPaddies(
+                PaddySearchRequest.builder().minPrice(29.999).maxPrice(30.001).build(), PageRequest.of(0, 1000));
+        Page<Paddy> otherStorage = paddyService.searchPaddies(
+                PaddySearchRequest.builder().storage(Storage.STORAGE_3).build(), PageRequest.of(0, 10));
+
+        assertEquals(Set.of(cheap.getId(), expensive.getId()),
+                new HashSet<>(bySupplier.map(Paddy::getId).getContent()));
+        assertTrue(bySupplierSince.isEmpty());
+        assertTrue(byPrice.stream().anyMatch(p -> p.getId().equals(expensive.getId())));
+        assertTrue(byPrice.stream().noneMatch(p -> p.getId().equals(cheap.getId())));
+        assertTrue(otherStorage.isEmpty());
+    }
+
+    @Test
+    void testSearch_CombinationWithoutIndex_ThrowsException() {
+        // a price band with a supplier, or two equality filters, cannot be served by one index
+        assertThrows(UnsupportedSearchFilterException.class, () -> paddyService.searchPaddies(
+                PaddySearchRequest.builder().supplier("Supplier A").minPrice(20.0).build(), PageRequest.of(0, 10)));
+        assertThrows(UnsupportedSearchFilterException.class, () -> paddyService.searchPaddies(
+                PaddySearchRequest.builder().supplier("Supplier A").storage(Storage.STORAGE_1).build(), PageRequest.of(0, 10)));
+        assertThrows(UnsupportedSearchFilterException.class, () -> batchService.searchBatches(
+                BatchSearchRequest.builder().processed(true).storage(Storage.STORAGE_2).build(), PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void testSearchBatchesAndRice_FilterByProcessedAndBatch() {
+        Paddy paddy = paddyService.createPaddy(500.0, 20.0, "Supplier A");
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+        Batch batch = batchService.createBatch(Map.of(paddy.getId().toString(), 100.0), 80.0);
+
+        Page<BatchResponse> batches = batchService.searchBatches(BatchSearchRequest.builder()
+                .processed(true).processedFrom(before).build(), PageRequest.of(0, 100));
+        Page<BatchResponse> unprocessed = batchService.searchBatches(BatchSearchRequest.builder()
+                .processed(false).processedFrom(before).build(), PageRequest.of(0, 100));
+        Page<RiceResponse> rice = riceService.searchRice(
+                RiceSearchRequest.builder().batchId(batch.getId()).build(), PageRequest.of(0, 10));
+
+        assertTrue(batches.stream().anyMatch(b -> b.getId().equals(batch.getId())));
+        assertTrue(batches.stream().allMatch(BatchResponse::isProcessed));
+        assertTrue(unprocessed.stream().noneMatch(b -> b.getId().equals(batch.getId())));
+        assertEquals(1, rice.getTotalElements());
+        assertEquals(batch.getId(), rice.getContent().get(0).getBatchId());
+    }
+
+    // every indexed filter needs an index with exactly these columns first, in this order
+    private void assertIndexes(String table, List<List<String>> indexedFilters) throws SQLException {
+        Map<String, List<String>> indexColumns = new HashMap<>();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet indexes = metaData.getIndexInfo(null, null, table.toUpperCase(Locale.ROOT), false, false)) {
+                while (indexes.next()) {
+                    List<String> columns = indexColumns.computeIfAbsent(indexes.getString("INDEX_NAME"), name -> new ArrayList<>());
+                    int position = indexes.getShort("ORDINAL_POSITION");
+                    while (columns.size() < position) {
+                        columns.add(null);
+                    }
+                    columns.set(position - 1, indexes.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        for (List<String> filter : indexedFilters) {
+            assertTrue(indexColumns.values().stream().anyMatch(columns ->
+                            columns.size() >= filter.size() && columns.subList(0, filter.size()).equals(filter)),
+                    table + " has no index leading with " + filter);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.model.Role;
+import com.nathancorp.pabrik.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserPrincipalCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private UserPrincipalCache userPrincipalCache;
+
+    private AtomicInteger loads;
+
+    private Function<String, User> loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userPrincipalCache = new UserPrincipalCache(meterRegistry, 100, Duration.ofMinutes(5));
+        loads = new AtomicInteger();
+        loader = email -> {
+            loads.incrementAndGet();
+            return new User(UUID.randomUUID(), "TestName", "Lastname", email, "password", Role.USER);
+        };
+    }
+
+    @Test
+    void testGet_LoadsOnceAndRecordsHits() {
+        User first = userPrincipalCache.get("some@email.com", loader);
+        User second = userPrincipalCache.get("some@email.com", loader);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void testInvalidate_ReloadsUser() {
+        userPrincipalCache.get("some@email.com", loader);
+        userPrincipalCache.invalidate("some@email.com");
+        userPrincipalCache.get("some@email.com", loader);
+
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,100 @@
+package com.nathancorp.pabrik.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteRateLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MutableClock clock;
+
+    private WriteRateLimiter writeRateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(Instant.parse("2024-06-01T12:00:00Z"));
+        // 60 per minute, bursts of 3
+        writeRateLimiter = new WriteRateLimiter(meterRegistry, List.of(
+                WriteRateLimiter.RouteGroup.of("import", "/api/v1/paddy/import", 1, 1),
+                WriteRateLimiter.RouteGroup.of("paddy", "/api/v1/paddy", 60, 3)
+        ), 100, Duration.ofMinutes(10), clock);
+    }
+
+    @Test
+    void testTryAcquire_AdmitsBurstThenRefillsAtRate() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Optional.empty(), writeRateLimiter.tryAcquire("a@email.com", "POST", "/api/v1/paddy"));
+        }
+
+        assertEquals(Optional.of(Duration.ofSeconds(1)), writeRateLimiter.tryAcquire("a@email.com", "POST", "/api/v1/paddy"));
+        clock.advance(Duration.ofMillis(400));
+        assertEquals(Optional.of(Duration.ofMillis(600)), writeRateLimiter.tryAcquire("a@email.com", "DELETE", "/api/v1/paddy/1"));
+        clock.advance(Duration.ofMillis(600));
+        assertEquals(Optional.empty(), writeRateLimiter.tryAcquire("a@email.com", "POST", "/api/v1/paddy"));
+        assertEquals(2.0, meterRegistry.get("pabrik.rate-limit.rejected").tag("group", "paddy").counter().count());
+    }
+
+    @Test
+    void testTryAcquire_BucketPerPrincipalAndGroup() {
+        assertEquals(Optional.empty(), writeRateLimiter.tryAcquire("a@email.com", "POST", "/api/v1/paddy/import"));
+        assertTrue(writeRateLimiter.tryAcquire("a@email.com", "POST", "/api/v1/paddy/import").isPresent());
+
+        assertEquals(Optional.empty(), writeRateLimiter.tryAcquire("b@email.com", "POST", "/api/v1/paddy/import"));
+        assertEquals(Optional.empty(), writeRateLimiter.tryAcquire("a@email.com", "POST", "/api/v1/paddy"));
+    }
+
+    @Test
+    void testTryAcquire_ReadsAndOtherRoutesAreNotLimited() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Optional.empty(), writeRateLimiter.tryAcquire("a@email.com", "GET", "/api/v1/paddy/import"));
+            assertEquals(Optional.empty(), writeRateLimiter.tryAcquire("a@email.com", "POST", "/api/v1/paddyx"));
+            assertEquals(Optional.empty(), writeRateLimiter.tryAcquire("a@email.com", "POST", "/api/v1/batch"));
+        }
+    }
+
+    @Test
+    void testRouteGroup_InvalidLimit_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> WriteRateLimiter.RouteGroup.of("paddy", "/api/v1/paddy", 0, 1));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.nathancorp.pabrik.service;
+
+import com.nathancorp.pabrik.dto.response.YieldReportResponse;
+import com.nathancorp.pabrik.exception.InvalidDateRangeException;
+import com.nathancorp.pabrik.exception.PaddyNotAvailableForProcessingException;
+import com.nathancorp.pabrik.model.Batch;
+import com.nathancorp.pabrik.model.Paddy;
+import com.nathancorp.pabrik.model.YieldRollup;
+import com.nathancorp.pabrik.repository.YieldRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.config.location=classpath:/test.properties")
+class YieldIntegrationTest {
+
+    @Autowired
+    private YieldService yieldService;
+
+    @Autowired
+    private PaddyService paddyService;
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private YieldRollupRepository yieldRollupRepository;
+
+    @Autowired
+    private TransactionOperations transactionOperations;
+
+    @Test
+    void testYieldReport_SplitsMixedBatchBySupplierInput() {
+        String supplierA = "Supplier " + UUID.randomUUID();
+        String supplierB = "Supplier " + UUID.randomUUID();
+        Paddy paddyA = paddyService.createPaddy(500.0, 20.0, supplierA);
+        Paddy paddyB = paddyService.createPaddy(500.0, 20.0, supplierB);
+
+        batchService.createBatch(Map.of(paddyA.getId().toString(), 100.0, paddyB.getId().toString(), 300.0), 200.0);
+        batchService.createBatch(Map.of(paddyA.getId().toString(), 100.0), 80.0);
+
+        YieldReportResponse a = today(supplierA);
+        YieldReportResponse b = today(supplierB);
+        assertEquals(2, a.getBatchCount());
+        assertEquals(200.0, a.getInputQuantity(), 1e-9);
+        assertEquals(130.0, a.getProducedQuantity(), 1e-9);
+        assertEquals(0.65, a.getYield(), 1e-9);
+        assertEquals(1, b.getBatchCount());
+        assertEquals(300.0, b.getInputQuantity(), 1e-9);
+        assertEquals(150.0, b.getProducedQuantity(), 1e-9);
+    }
+
+    @Test
+    void testYieldReport_FollowsBatchStatusUpdates() {
+        String supplier = "Supplier " + UUID.randomUUID();
+        Paddy paddy = paddyService.createPaddy(500.0, 20.0, supplier);
+        Batch batch = batchService.createBatch(Map.of(paddy.getId().toString(), 200.0), 150.0);
+
+        batchService.updateBatchStatus(batch.getId().toString(), true, 180.0);
+        YieldReportResponse corrected = today(supplier);
+        batchService.updateBatchStatus(batch.getId().toString(), false, 180.0);
+        YieldReportResponse unprocessed = today(supplier);
+
+        assertEquals(1, corrected.getBatchCount());
+        assertEquals(180.0, corrected.getProducedQuantity(), 1e-9);
+        assertEquals(0.9, corrected.getYield(), 1e-9);
+        assertEquals(0, unprocessed.getBatchCount());
+        assertEquals(0.0, unprocessed.getInputQuantity(), 1e-9);
+        assertNull(unprocessed.getYield());
+    }
+
+    @Test
+    void testYieldReport_FollowsStatusUpdatesOfMixedBatch() {
+        String supplierA = "Supplier " + UUID.randomUUID();
+        String supplierB = "Supplier " + UUID.randomUUID();
+        Paddy paddyA = paddyService.createPaddy(500.0, 20.0, supplierA);
+        Paddy paddyB = paddyService.createPaddy(500.0, 20.0, supplierB);
+        Batch batch = batchService.createBatch(
+                Map.of(paddyA.getId().toString(), 100.0, paddyB.getId().toString(), 300.0), 200.0);
+
+        // read back, its suppliers are summed in the database
+        batchService.updateBatchStatus(batch.getId().toString(), true, 240.0);
+
+        YieldReportResponse a = today(supplierA);
+        YieldReportResponse b = today(supplierB);
+        assertEquals(1, a.getBatchCount());
+        assertEquals(100.0, a.getInputQuantity(), 1e-9);
+        assertEquals(60.0, a.getProducedQuantity(), 1e-9);
+        assertEquals(1, b.getBatchCount());
+        assertEquals(300.0, b.getInputQuantity(), 1e-9);
+        assertEquals(180.0, b.getProducedQuantity(), 1e-9);
+    }
+
+    @Test
+    void testYieldReport_UnchangedWhenBatchRollsBack() {
+        String supplier = "Supplier " + UUID.randomUUID();
+        Paddy paddy = paddyService.createPaddy(100.0, 20.0, supplier);
+
+        assertThrows(PaddyNotAvailableForProcessingException.class,
+                () -> batchService.createBatch(Map.of(paddy.getId().toString(), 200.0), 150.0));
+
+        assertTrue(yieldService.getYieldReport(LocalDate.now(), LocalDate.now(), supplier).isEmpty());
+    }
+
+    @Test
+    void testRebuild_MatchesIncrementalRollup() {
+        String supplier = "Supplier " + UUID.randomUUID();
+        Paddy first = paddyService.createPaddy(500.0, 20.0, supplier);
+        Paddy second = paddyService.createPaddy(500.0, 20.0, supplier);
+        batchService.createBatch(Map.of(first.getId().toString(), 120.0, second.getId().toString(), 80.0), 150.0);
+        YieldReportResponse incremental = today(supplier);
+
+        yieldService.rebuild();
+
+        YieldReportResponse rebuilt = today(supplier);
+        assertEquals(1, rebuilt.getBatchCount());
+        assertEquals(incremental.getInputQuantity(), rebuilt.getInputQuantity(), 1e-9);
+        assertEquals(incremental.getProducedQuantity(), rebuilt.getProducedQuantity(), 1e-9);
+    }
+
+    @Test
+    void testYieldReport_InvalidRange_ThrowsException() {
+        LocalDate today = LocalDate.now();
+
+        assertThrows(InvalidDateRangeException.class, () -> yieldService.getYieldReport(today, today.minusDays(1), null));
+        assertThrows(InvalidDateRangeException.class, () -> yieldService.getYieldReport(today.minusYears(2), today, null));
+    }
+
+    @Test
+    void testInsertIfAbsent_LosingConcurrentInsert_KeepsTheTransactionUsable() throws Exception {
+        LocalDate day = LocalDate.of(1999, 1, 1);
+        String supplier = "Supplier " + UUID.randomUUID();
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger firstRows = new AtomicInteger(-1);
+        AtomicInteger secondRows = new AtomicInteger(-1);
+
+        Thread first = new Thread(() -> transactionOperations.executeWithoutResult(status -> {
+            firstRows.set(yieldRollupRepository.insertIfAbsent(day, supplier));
+            inserted.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        first.start();
+        inserted.await();
+        // the row is not committed yet, so the second insert cannot see it and has to wait for its lock
+        Thread second = new Thread(() -> transactionOperations.executeWithoutResult(status -> {
+            secondRows.set(yieldRollupRepository.insertIfAbsent(day, supplier));
+            yieldRollupRepository.addToRollup(day, supplier, 1, 100.0, 80.0);
+        }));
+        second.start();
+        Thread.sleep(200);
+        finish.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(1, firstRows.get());
+        assertEquals(0, secondRows.get());
+        YieldRollup rollup = yieldRollupRepository.findById(new YieldRollup.Key(day, supplier)).orElseThrow();
+        assertEquals(1, rollup.getBatchCount());
+        assertEquals(100.0, rollup.getInputQuantity(), 1e-9);
+    }
+
+    private YieldReportResponse today(String supplier) {
+        List<YieldReportResponse> report = yieldService.getYieldReport(LocalDate.now(), LocalDate.now(), supplier);
+        assertEquals(1, report.size());
+        assertEquals(supplier, report.get(0).getSupplier());
+        return report.get(0);
+    }
+}
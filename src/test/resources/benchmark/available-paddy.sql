@@ -0,0 +1,42 @@
+-- Available paddy listing before and after remaining_quantity on Postgres, on a table of :rows paddies
+-- of which 95% are fully processed, as it looks after a few seasons.
+-- Run against a scratch database: psql -d pabrik_bench -v rows=1000000 -f available-paddy.sql
+
+\set ON_ERROR_STOP on
+\if :{?rows}
+\else
+\set rows 1000000
+\endif
+
+DROP TABLE IF EXISTS bench_paddy;
+CREATE TABLE bench_paddy (
+    id                 uuid             NOT NULL PRIMARY KEY,
+    quantity           double precision NOT NULL,
+    processed_quantity double precision NOT NULL,
+    remaining_quantity double precision,
+    purchase_date      timestamp        NOT NULL
+);
+
+INSERT INTO bench_paddy
+SELECT gen_random_uuid(), 500, p, 500 - p, now() - make_interval(mins => i)
+FROM generate_series(1, :rows) i,
+     LATERAL (SELECT CASE WHEN i % 20 = 0 THEN 100 ELSE 500 END::double precision AS p) processed;
+
+CREATE INDEX bench_paddy_available ON bench_paddy (purchase_date, id) WHERE remaining_quantity > 0;
+VACUUM ANALYZE bench_paddy;
+
+\echo 'before: column comparison, no index can serve it'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM bench_paddy WHERE processed_quantity < quantity ORDER BY purchase_date, id LIMIT 20 OFFSET 0;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM bench_paddy WHERE processed_quantity < quantity;
+
+\echo 'after: partial index on available rows'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM bench_paddy WHERE remaining_quantity > 0 ORDER BY purchase_date, id LIMIT 20 OFFSET 0;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM bench_paddy WHERE remaining_quantity > 0;
+
+SELECT pg_size_pretty(pg_relation_size('bench_paddy_available')) AS partial_index_size;
+
+DROP TABLE bench_paddy;
@@ -0,0 +1,43 @@
+-- Insert throughput and primary key index size of random v4 vs time-ordered v7 ids on Postgres.
+-- Run against a scratch database: psql -d pabrik_bench -v rows=5000000 -f uuid-v7-vs-v4.sql
+-- The v7 ids are built like UuidV7Generator: 48 bit unix millis, version 7, 12 bit counter, variant, random bits.
+
+\set ON_ERROR_STOP on
+\if :{?rows}
+\else
+\set rows 5000000
+\endif
+\timing on
+
+CREATE EXTENSION IF NOT EXISTS pgstattuple;
+
+CREATE OR REPLACE FUNCTION bench_uuid_v7(n bigint) RETURNS uuid AS $$
+SELECT encode(
+    set_byte(set_byte(
+        overlay(uuid_send(gen_random_uuid())
+                placing substring(int8send(floor(extract(epoch FROM clock_timestamp()) * 1000)::bigint) FROM 3)
+                FROM 1 FOR 6),
+        6, (x'70'::int | ((n >> 8) & 15)::int)), 7, (n & 255)::int),
+    'hex')::uuid
+$$ LANGUAGE sql VOLATILE;
+
+DROP TABLE IF EXISTS bench_paddy_v4;
+DROP TABLE IF EXISTS bench_paddy_v7;
+CREATE TABLE bench_paddy_v4 (id uuid PRIMARY KEY, quantity double precision, price double precision);
+CREATE TABLE bench_paddy_v7 (id uuid PRIMARY KEY, quantity double precision, price double precision);
+
+\echo 'v4 insert'
+INSERT INTO bench_paddy_v4 SELECT gen_random_uuid(), 500, 20 FROM generate_series(1, :rows);
+\echo 'v7 insert'
+INSERT INTO bench_paddy_v7 SELECT bench_uuid_v7(i), 500, 20 FROM generate_series(1, :rows) i;
+
+\timing off
+SELECT 'v4' AS ids, pg_size_pretty(pg_relation_size('bench_paddy_v4_pkey')) AS pkey_size,
+       (SELECT leaf_fragmentation FROM pgstatindex('bench_paddy_v4_pkey')) AS leaf_fragmentation
+UNION ALL
+SELECT 'v7', pg_size_pretty(pg_relation_size('bench_paddy_v7_pkey')),
+       (SELECT leaf_fragmentation FROM pgstatindex('bench_paddy_v7_pkey'));
+
+DROP TABLE bench_paddy_v4;
+DROP TABLE bench_paddy_v7;
+DROP FUNCTION bench_uuid_v7(bigint);